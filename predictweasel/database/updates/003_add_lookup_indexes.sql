@@ -0,0 +1,20 @@
+-- Composite indexes for the hottest lookups, so they're index seeks rather than
+-- scans of the foreign key indexes:
+--   a player's prediction for a fixture (prediction by user_id and fixture_id),
+--   a subscription's points for a fixture and prize (prize_points by subscription_id, fixture_id and prize_code),
+--   a competition's fixtures in match time order (fixture by competition_id and match_time).
+--
+-- The first two are also unique, as the application has always assumed. If either fails
+-- to be added there are duplicate rows, which can be found with:
+--   select user_id, fixture_id, count(*) from prediction group by user_id, fixture_id having count(*) > 1;
+--   select subscription_id, fixture_id, prize_code, count(*) from prize_points
+--     group by subscription_id, fixture_id, prize_code having count(*) > 1;
+
+alter table prediction
+  add unique key prediction_user_fixture (user_id, fixture_id);
+
+alter table prize_points
+  add unique key prize_points_subscription_fixture_prize (subscription_id, fixture_id, prize_code);
+
+alter table fixture
+  add key fixture_competition_match_time (competition_id, match_time);
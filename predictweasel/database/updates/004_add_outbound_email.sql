@@ -0,0 +1,16 @@
+-- The outbox of emails waiting to be sent (and those that have been), so that sending
+-- an email doesn't hold up a request and emails survive a restart.
+
+create table outbound_email (
+  id bigint(20) not null auto_increment,
+  recipient varchar(255) not null,
+  subject varchar(255) not null,
+  message_text text not null,
+  created_time datetime not null,
+  attempts int(11) not null default 0,
+  next_attempt_time datetime not null,
+  sent_time datetime null,
+  last_error varchar(255) null,
+  primary key (id),
+  key outbound_email_unsent (sent_time, next_attempt_time)
+) engine=InnoDB;
@@ -0,0 +1,118 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to bring the standings of a large league up to date after a
+ * result has been entered: either by applying the changed totals to the existing
+ * {@link LeagueStandings}, or by sorting every player again as a full recalculation does.
+ * The number of players whose totals change depends on how many predicted the fixture.
+ * <p>
+ * Run with {@code gradle jmh -PjmhArgs='LeagueStandingsBenchmark'}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LeagueStandingsBenchmark {
+	private static final String PRIZE_CODE = "O";
+
+	@Param("50000")
+	private int numberOfPlayers;
+
+	@Param({ "1", "100" })
+	private int changedPercentage;
+
+	private LeagueStandings standings;
+
+	private Map<String, Map<Long, PlayerStanding>> changes;
+
+	private List<PlayerStanding> newTotals;
+
+	/**
+	 * Create a league whose players have a realistic spread of points, and the new totals of
+	 * some of them. The same seed is used every time so that runs can be compared with each other.
+	 */
+	@Setup
+	public void createLeague() {
+		Random random = new Random(1966L);
+		Map<Long, PlayerStanding> players = new HashMap<>();
+		Map<Long, PlayerStanding> changedPlayers = new HashMap<>();
+
+		newTotals = new ArrayList<>();
+
+		for (int i = 0; i < numberOfPlayers; i++) {
+			User player = new User();
+
+			player.setId(Long.valueOf(i));
+			player.setName("Player " + i);
+
+			int points = random.nextInt(200);
+
+			players.put(player.getId(), new PlayerStanding(player, points));
+
+			if (random.nextInt(100) < changedPercentage) {
+				PlayerStanding changedPlayer = new PlayerStanding(player, points + random.nextInt(12) - 3);
+
+				changedPlayers.put(player.getId(), changedPlayer);
+				newTotals.add(changedPlayer);
+			} else {
+				newTotals.add(new PlayerStanding(player, points));
+			}
+		}
+
+		// Adding everyone to an empty league gives them their positions.
+
+		standings = new LeagueStandings(1L, Collections.singletonMap(PRIZE_CODE, Collections.<PlayerStanding>emptyList()))
+						.applyChanges(Collections.singletonMap(PRIZE_CODE, players));
+		changes = Collections.singletonMap(PRIZE_CODE, changedPlayers);
+	}
+
+	/**
+	 * Move only the players whose totals have changed.
+	 *
+	 * @return the new standings
+	 */
+	@Benchmark
+	public LeagueStandings applyChanges() {
+		return standings.applyChanges(changes);
+	}
+
+	/**
+	 * Sort every player by their new total, as a full recalculation does.
+	 *
+	 * @return the new standings
+	 */
+	@Benchmark
+	public List<PlayerStanding> sortAllPlayers() {
+		List<PlayerStanding> sortedPlayers = new ArrayList<>(newTotals);
+
+		Collections.sort(sortedPlayers);
+
+		return sortedPlayers;
+	}
+}
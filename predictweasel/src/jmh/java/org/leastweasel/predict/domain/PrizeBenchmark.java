@@ -0,0 +1,124 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.leastweasel.predict.config.CoreConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Measures how long each of the configured {@link Prize}s takes to calculate the points
+ * scored by a prediction, including filtering the fixture and scoring missing predictions.
+ * The prizes are the ones the application uses, as created by {@link CoreConfig#prizes()},
+ * both with and without their score lookup tables.
+ * Each invocation scores a million synthetic fixtures, so the reported time is per
+ * prediction scored.
+ * <p>
+ * Run with {@code gradle jmh}; add {@code -PjmhArgs='-prof gc'} to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PrizeBenchmark {
+	private static final int NUMBER_OF_FIXTURES = ScorerBenchmark.NUMBER_OF_PAIRS;
+
+	/**
+	 * The code of the prize to benchmark.
+	 */
+	@Param({ "O", "KO", "SO" })
+	private String prizeCode;
+
+	/**
+	 * The percentage of predictions that are missing.
+	 */
+	@Param({ "5" })
+	private int missingPercentage;
+
+	/**
+	 * The largest number of goals held in the score lookup tables; -1 turns them off.
+	 */
+	@Param({ "-1", "9" })
+	private int scoreLookupTableMaximumGoals;
+
+	private Prize prize;
+
+	private Fixture[] fixtures;
+
+	private MatchResult[] predictions;
+
+	/**
+	 * Look up the prize and generate the fixtures and predictions. A quarter of the fixtures
+	 * are in the knock-out stage. The same seed is used every time so that runs can be compared
+	 * with each other.
+	 */
+	@Setup
+	public void createFixtures() {
+		Random random = new Random(1966L);
+
+		CoreConfig config = new CoreConfig();
+		Field maximumGoals = ReflectionUtils.findField(CoreConfig.class, "scoreLookupTableMaximumGoals");
+
+		ReflectionUtils.makeAccessible(maximumGoals);
+		ReflectionUtils.setField(maximumGoals, config, scoreLookupTableMaximumGoals);
+
+		prize = config.prizes().getPrizeForCode(prizeCode);
+
+		if (prize == null) {
+			throw new IllegalStateException("No prize configured with code: '" + prizeCode + "'");
+		}
+
+		fixtures = new Fixture[NUMBER_OF_FIXTURES];
+		predictions = new MatchResult[NUMBER_OF_FIXTURES];
+
+		for (int i = 0; i < NUMBER_OF_FIXTURES; i++) {
+			Fixture fixture = new Fixture();
+
+			fixture.setId(Long.valueOf(i));
+			fixture.setKnockoutFixture(random.nextInt(4) == 0);
+			fixture.setResult(ScorerBenchmark.createScore(random));
+
+			fixtures[i] = fixture;
+
+			if (random.nextInt(100) >= missingPercentage) {
+				predictions[i] = ScorerBenchmark.createScore(random);
+			}
+		}
+	}
+
+	/**
+	 * Calculate the points scored by every prediction in the prize.
+	 *
+	 * @return the total points scored, so that the work can't be optimised away
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_FIXTURES)
+	public long calculatePointsScored() {
+		long total = 0;
+
+		for (int i = 0; i < NUMBER_OF_FIXTURES; i++) {
+			total += prize.calculatePointsScored(fixtures[i], predictions[i]);
+		}
+
+		return total;
+	}
+}
@@ -0,0 +1,205 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long each of the {@link Scorer} implementations takes to score a prediction.
+ * Each invocation scores a million synthetic prediction/result pairs, so the reported time is
+ * per prediction scored. The scores are drawn from a range that covers just about every
+ * result we'd ever see, with a few high-scoring outliers. Each scorer is measured both with
+ * {@link MatchResult}s and with primitive goal counts, which is how {@link Prize} uses it.
+ * <p>
+ * Run with {@code gradle jmh}; add {@code -PjmhArgs='-prof gc'} to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScorerBenchmark {
+	/**
+	 * The number of prediction/result pairs scored by each invocation of a benchmark.
+	 */
+	static final int NUMBER_OF_PAIRS = 1000000;
+
+	private final Scorer livermoreScorer = new LivermoreScoringModel();
+
+	private final Scorer lookupTableScorer = new LookupTableScorer(livermoreScorer, 9);
+
+	private final Scorer spotOnScorer = new DefaultSpotOnScoringModel();
+
+	private final Scorer missingPredictionScorer = new DefaultMissingPredictionScoringModel(livermoreScorer);
+
+	private MatchResult[] predictions;
+
+	private MatchResult[] results;
+
+	private int[] goals;
+
+	/**
+	 * Generate the prediction/result pairs. The same seed is used every time so that runs can be
+	 * compared with each other.
+	 */
+	@Setup
+	public void createPairs() {
+		Random random = new Random(1966L);
+
+		predictions = new MatchResult[NUMBER_OF_PAIRS];
+		results = new MatchResult[NUMBER_OF_PAIRS];
+		goals = new int[NUMBER_OF_PAIRS * 4];
+
+		for (int i = 0; i < NUMBER_OF_PAIRS; i++) {
+			predictions[i] = createScore(random);
+			results[i] = createScore(random);
+
+			goals[i * 4] = predictions[i].getHomeScore();
+			goals[i * 4 + 1] = predictions[i].getAwayScore();
+			goals[i * 4 + 2] = results[i].getHomeScore();
+			goals[i * 4 + 3] = results[i].getAwayScore();
+		}
+	}
+
+	/**
+	 * Score the pairs using the Livermore scoring model.
+	 *
+	 * @return the total points scored, so that the work can't be optimised away
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_PAIRS)
+	public long livermore() {
+		return scoreAll(livermoreScorer);
+	}
+
+	/**
+	 * Score the pairs' goal counts using the Livermore scoring model.
+	 *
+	 * @return the total points scored, so that the work can't be optimised away
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_PAIRS)
+	public long livermorePrimitive() {
+		return scoreAllPrimitive(livermoreScorer);
+	}
+
+	/**
+	 * Score the pairs' goal counts using the Livermore scoring model's lookup table.
+	 *
+	 * @return the total points scored, so that the work can't be optimised away
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_PAIRS)
+	public long livermoreLookupTable() {
+		return scoreAllPrimitive(lookupTableScorer);
+	}
+
+	/**
+	 * Score the pairs using the default spot-on scoring model.
+	 *
+	 * @return the total points scored, so that the work can't be optimised away
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_PAIRS)
+	public long spotOn() {
+		return scoreAll(spotOnScorer);
+	}
+
+	/**
+	 * Score the pairs' goal counts using the default spot-on scoring model.
+	 *
+	 * @return the total points scored, so that the work can't be optimised away
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_PAIRS)
+	public long spotOnPrimitive() {
+		return scoreAllPrimitive(spotOnScorer);
+	}
+
+	/**
+	 * Score the results as if every prediction were missing, using the default missing
+	 * prediction scoring model on top of the Livermore scoring model.
+	 *
+	 * @return the total points scored, so that the work can't be optimised away
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_PAIRS)
+	public long missingPrediction() {
+		long total = 0;
+
+		for (int i = 0; i < NUMBER_OF_PAIRS; i++) {
+			total += missingPredictionScorer.getPointsScored(null, results[i]);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Score every pair using the given scorer.
+	 *
+	 * @param scorer the scorer to use
+	 * @return the total points scored
+	 */
+	private long scoreAll(Scorer scorer) {
+		long total = 0;
+
+		for (int i = 0; i < NUMBER_OF_PAIRS; i++) {
+			total += scorer.getPointsScored(predictions[i], results[i]);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Score every pair's goal counts using the given scorer.
+	 *
+	 * @param scorer the scorer to use
+	 * @return the total points scored
+	 */
+	private long scoreAllPrimitive(Scorer scorer) {
+		long total = 0;
+
+		for (int i = 0; i < goals.length; i += 4) {
+			total += scorer.getPointsScored(goals[i], goals[i + 1], goals[i + 2], goals[i + 3]);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Create a random, but plausible, score. Most teams score between 0 and 3 goals, with the
+	 * occasional thrashing.
+	 *
+	 * @param random the source of randomness
+	 * @return the new score
+	 */
+	static MatchResult createScore(Random random) {
+		return new MatchResult(createGoals(random), createGoals(random));
+	}
+
+	/**
+	 * Create a random, but plausible, number of goals for one team.
+	 *
+	 * @param random the source of randomness
+	 * @return the number of goals
+	 */
+	private static int createGoals(Random random) {
+		return random.nextInt(20) == 0 ? 4 + random.nextInt(5) : random.nextInt(4);
+	}
+}
@@ -4,15 +4,22 @@
  */
 package org.leastweasel.predict.config;
 
+import java.util.Properties;
+
 import org.jasypt.digest.StandardStringDigester;
 import org.leastweasel.predict.domain.DefaultMissingPredictionScoringModel;
 import org.leastweasel.predict.domain.DefaultSpotOnScoringModel;
+import org.leastweasel.predict.domain.FixedPredictionsCache;
+import org.leastweasel.predict.domain.FixturePredictionsCache;
 import org.leastweasel.predict.domain.KnockoutStageFixtureFilter;
 import org.leastweasel.predict.domain.LivermoreScoringModel;
+import org.leastweasel.predict.domain.LookupTableScorer;
+import org.leastweasel.predict.domain.PredictionJournal;
 import org.leastweasel.predict.domain.Prize;
 import org.leastweasel.predict.domain.Prizes;
 import org.leastweasel.predict.domain.Scorer;
 import org.leastweasel.predict.domain.StandingsCache;
+import org.leastweasel.predict.domain.SubscriptionCache;
 import org.leastweasel.predict.service.Clock;
 import org.leastweasel.predict.service.EmailFactory;
 import org.leastweasel.predict.service.PasswordResetTokenGenerator;
@@ -26,13 +33,16 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.crypto.password.StandardPasswordEncoder;
 
 /**
- * Spring Bean configuration for any core components,
+ * Spring Bean configuration for any core components. Also enables the running of
+ * scheduled tasks, such as sending the emails waiting in the outbox.
  */
 @Configuration
+@EnableScheduling
 public class CoreConfig {
     @Value("${email.host}")
     private String mailHost;
@@ -40,9 +50,33 @@ public class CoreConfig {
     @Value("${email.port}")
     private Integer mailPort;
 
+    @Value("${email.timeoutMillis}")
+    private String mailTimeout;
+
 	@Value("${predictWeasel.elapsedTimeClockStartTime}")
 	private String startingTime;
 
+	@Value("${predictWeasel.subscriptionCacheSize}")
+	private int subscriptionCacheSize;
+
+	@Value("${predictWeasel.subscriptionCacheExpirySeconds}")
+	private int subscriptionCacheExpirySeconds;
+
+	@Value("${predictWeasel.scoreLookupTableMaximumGoals}")
+	private int scoreLookupTableMaximumGoals;
+
+	@Value("${predictWeasel.predictionJournalFile}")
+	private String predictionJournalFile;
+
+	@Value("${predictWeasel.fixturePredictionsCacheSize}")
+	private int fixturePredictionsCacheSize;
+
+	@Value("${predictWeasel.fixedPredictionsCacheSize}")
+	private int fixedPredictionsCacheSize;
+
+	@Value("${predictWeasel.fixedPredictionsCacheExpirySeconds}")
+	private int fixedPredictionsCacheExpirySeconds;
+
 	/**
 	 * Create a bean for encoding passwords. This is used by both the sign up process (to
 	 * encrypt the password chosen by the user), and Spring Security during authentication
@@ -102,6 +136,10 @@ public class CoreConfig {
 	/**
 	 * Create the bean that holds the various prizes from which a league
 	 * creator can choose.
+	 * <p>
+	 * The overall and knockout prizes look their scores up in a table, as they're
+	 * the ones that are expensive to calculate. The spot-on prize's scorer is
+	 * already about as cheap as a table lookup.
 	 *  
 	 * @return the collection of configured prizes
 	 */
@@ -109,7 +147,7 @@ public class CoreConfig {
 	public Prizes prizes() {
 		Prizes prizes = new Prizes();
 		
-		Scorer mainScorer = new LivermoreScoringModel();
+		Scorer mainScorer = withLookupTable(new LivermoreScoringModel());
 		Scorer missingPredictionScorer = new DefaultMissingPredictionScoringModel(mainScorer);
 		
 		Prize prize1 = new Prize("O", "Overall", mainScorer);
@@ -126,6 +164,22 @@ public class CoreConfig {
 		return prizes;
 	}
 
+	/**
+	 * Wrap the given scorer in one that looks its scores up in a precomputed table,
+	 * covering every scoreline up to {@code predictWeasel.scoreLookupTableMaximumGoals}
+	 * goals per team. A negative maximum turns the tables off.
+	 * 
+	 * @param scorer the scorer to speed up
+	 * @return the wrapped scorer, or the original if tables are turned off
+	 */
+	private Scorer withLookupTable(Scorer scorer) {
+		if (scoreLookupTableMaximumGoals < 0) {
+			return scorer;
+		}
+		
+		return new LookupTableScorer(scorer, scoreLookupTableMaximumGoals);
+	}
+
 	/**
 	 * Create the bean that holds the standings for the various leagues.
 	 *  
@@ -135,6 +189,47 @@ public class CoreConfig {
 	public StandingsCache standingsCache() {
 		return new StandingsCache();
 	}
+
+	/**
+	 * Create the bean that holds a summary of each player's subscriptions.
+	 *  
+	 * @return the subscription cache
+	 */
+	@Bean
+	public SubscriptionCache subscriptionCache() {
+		return new SubscriptionCache(subscriptionCacheSize, subscriptionCacheExpirySeconds);
+	}
+
+	/**
+	 * Create the bean that holds the predictions made for fixtures that have kicked off.
+	 *  
+	 * @return the fixture predictions cache
+	 */
+	@Bean
+	public FixturePredictionsCache fixturePredictionsCache() {
+		return new FixturePredictionsCache(fixturePredictionsCacheSize);
+	}
+
+	/**
+	 * Create the bean that holds each player's predictions for fixtures that have kicked off.
+	 *  
+	 * @return the fixed predictions cache
+	 */
+	@Bean
+	public FixedPredictionsCache fixedPredictionsCache() {
+		return new FixedPredictionsCache(fixedPredictionsCacheSize, fixedPredictionsCacheExpirySeconds);
+	}
+
+	/**
+	 * Create the bean that records the changes to predictions that haven't been saved to
+	 * the database yet. It's only used if {@code predictWeasel.predictionWriteBehind} is set.
+	 *  
+	 * @return the prediction journal
+	 */
+	@Bean
+	public PredictionJournal predictionJournal() {
+		return new PredictionJournal(predictionJournalFile);
+	}
 	
     @Bean
     public JavaMailSender javaMailService() {
@@ -143,6 +238,15 @@ public class CoreConfig {
         javaMailSender.setHost(mailHost);
         javaMailSender.setPort(mailPort);
 
+        // Don't let an unresponsive mail server tie up the threads sending emails indefinitely.
+        Properties mailProperties = new Properties();
+        
+        mailProperties.setProperty("mail.smtp.connectiontimeout", mailTimeout);
+        mailProperties.setProperty("mail.smtp.timeout", mailTimeout);
+        mailProperties.setProperty("mail.smtp.writetimeout", mailTimeout);
+        
+        javaMailSender.setJavaMailProperties(mailProperties);
+
         return javaMailSender;
     }
     
@@ -5,12 +5,15 @@
 package org.leastweasel.predict.config;
 
 import org.leastweasel.predict.service.SecurityService;
+import org.leastweasel.predict.web.StaticAssetLinkFilter;
+import org.leastweasel.predict.web.StaticAssets;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.context.SecurityContextPersistenceFilter;
 
 /**
  * Configure the security side of PredictWeasel.
@@ -23,18 +26,23 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 	
 	@Autowired
 	private PasswordEncoder passwordEncoder;
+	
+	@Autowired
+	private StaticAssets staticAssets;
 
 	/**
 	 * Configure the authentication process. We want form login, with a
 	 * remember-me check box in the form to be supported. We navigate to
 	 * the home page if the login is successful, and back to the form if not.
+	 * The links to static assets in our pages are pointed at their fingerprinted
+	 * copies from inside the chain, where Spring Security will let them be rewritten.
 	 * 
 	 * @param http web based security configuration
 	 */
 	@Override
 	protected void configure(HttpSecurity http) throws Exception {
 		http.authorizeRequests()
-			.antMatchers("/", "/login", "/signup", "/forgottenPassword", "/resetPassword", "/error/*", "/help/*").permitAll()
+			.antMatchers("/", "/login", "/signup", "/forgottenPassword", "/resetPassword", "/error/*", "/help/*", "/ready").permitAll()
 			.antMatchers("/competitions", "/competition/*").hasAnyRole("COMP_ADMIN")
 			.anyRequest().fullyAuthenticated()
 			.and()
@@ -43,7 +51,9 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 						.defaultSuccessUrl("/")
 						.permitAll()
 			.and()
-			.rememberMe();
+			.rememberMe()
+			.and()
+			.addFilterAfter(new StaticAssetLinkFilter(staticAssets), SecurityContextPersistenceFilter.class);
 	}
 
 	/**
@@ -4,13 +4,19 @@
  */
 package org.leastweasel.predict.config;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 
+import org.leastweasel.predict.web.PrecompressedResourceHandler;
 import org.leastweasel.predict.web.SessionAccess;
 import org.leastweasel.predict.web.SessionSettings;
+import org.leastweasel.predict.web.SharedFragmentCache;
+import org.leastweasel.predict.web.StaticAssets;
 import org.leastweasel.predict.web.controller.LeagueCodeResolvingHandlerInterceptor;
 import org.leastweasel.predict.web.controller.UserSubscriptionArgumentResolver;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.embedded.ConfigurableEmbeddedServletContainer;
 import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
 import org.springframework.boot.context.embedded.ErrorPage;
@@ -18,11 +24,14 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
 
 /**
  * Configure the web side of things for PredictWeasel. At the moment that's just view controllers
@@ -36,6 +45,9 @@ public class WebConfig extends WebMvcConfigurerAdapter {
 	@Autowired
 	private UserSubscriptionArgumentResolver userSubscriptionArgumentResolver;
 	
+	@Value("${predictWeasel.sharedFragmentCacheSize}")
+	private int sharedFragmentCacheSize;
+	
 	/**
 	 * Set up the view controllers we need. We use a view controller when
 	 * there's no need to write our own controller: we just need to navigate to
@@ -63,7 +75,7 @@ public class WebConfig extends WebMvcConfigurerAdapter {
 	 */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        registry.addInterceptor(leagueReqestHandlerInterceptor).addPathPatterns("/", "/league/*");
+        registry.addInterceptor(leagueReqestHandlerInterceptor).addPathPatterns("/", "/league/*", "/league/api/*");
     }
     
     /**
@@ -116,6 +128,55 @@ public class WebConfig extends WebMvcConfigurerAdapter {
     		return new SessionAccess();
     }
     
+    /**
+     * A bean holding the pieces of pages that are rendered once and shared by everyone
+     * who sees them.
+     * 
+     * @return the shared fragment cache
+     */
+    @Bean
+    public SharedFragmentCache sharedFragmentCache() {
+    		return new SharedFragmentCache(sharedFragmentCacheSize);
+    }
+    
+    /**
+     * A bean holding the fingerprinted copies of the static assets written by the build.
+     * 
+     * @return the static assets
+     * @throws IOException if the build's manifest of the assets can't be read
+     */
+    @Bean
+    public StaticAssets staticAssets() throws IOException {
+    		return new StaticAssets(new ClassPathResource("static-assets.properties"));
+    }
+    
+    /**
+     * Serve the fingerprinted copies of the static assets, precompressed and with far-future
+     * cache headers, ahead of the handler Spring Boot sets up for everything in the public
+     * folder.
+     * 
+     * @return a handler mapping for the fingerprinted assets
+     */
+    @Bean
+    public SimpleUrlHandlerMapping staticAssetHandlerMapping() {
+    		SimpleUrlHandlerMapping mapping = new SimpleUrlHandlerMapping();
+    		
+    		mapping.setOrder(Ordered.HIGHEST_PRECEDENCE);
+    		mapping.setUrlMap(Collections.singletonMap("/assets/**", precompressedResourceHandler()));
+    		
+    		return mapping;
+    }
+    
+    /**
+     * A handler serving the fingerprinted copies of the static assets.
+     * 
+     * @return the precompressed resource handler
+     */
+    @Bean
+    public PrecompressedResourceHandler precompressedResourceHandler() {
+    		return new PrecompressedResourceHandler("public/assets/");
+    }
+    
     /**
      * A session scoped bean storing some settings for each user. The bean will be
      * injected into others as a proxy so that the correct one is extracted from
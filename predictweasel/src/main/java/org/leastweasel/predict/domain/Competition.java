@@ -12,6 +12,8 @@ import javax.persistence.Id;
 
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.NotBlank;
 
 /**
@@ -20,6 +22,7 @@ import org.hibernate.validator.constraints.NotBlank;
  * {@link org.leastweasel.predict.domain.League}.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Competition implements Serializable {
 
 	private static final long serialVersionUID = 1L;
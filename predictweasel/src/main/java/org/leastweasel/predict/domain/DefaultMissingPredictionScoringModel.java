@@ -11,7 +11,9 @@ package org.leastweasel.predict.domain;
  * a delegate scorer.
  */
 public class DefaultMissingPredictionScoringModel implements Scorer {
-	private static final MatchResult IMPOSED_PREDICTION = new MatchResult(0, 0);
+	private static final int IMPOSED_HOME_SCORE = 0;
+
+	private static final int IMPOSED_AWAY_SCORE = 0;
 	
     /**
      * The delegate actually calculates the score for the imposed prediction.
@@ -39,10 +41,23 @@ public class DefaultMissingPredictionScoringModel implements Scorer {
 	public int getPointsScored(MatchResult predictedScore, MatchResult actualScore) {
 
         // We're not interested in incomplete scenarios.
-        if (actualScore == null) {
+        if (actualScore == null || !actualScore.isComplete()) {
             return 0;
         }
 
-        return delegate.getPointsScored(IMPOSED_PREDICTION, actualScore);
+        return getPointsScored(IMPOSED_HOME_SCORE, IMPOSED_AWAY_SCORE,
+        					   actualScore.getHomeScore(), actualScore.getAwayScore());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * As the prediction is missing, the predicted scores are ignored: the imposed prediction
+	 * is scored instead.
+	 */
+	@Override
+	public int getPointsScored(int predictedHomeScore, int predictedAwayScore,
+							   int actualHomeScore, int actualAwayScore) {
+        return delegate.getPointsScored(IMPOSED_HOME_SCORE, IMPOSED_AWAY_SCORE, actualHomeScore, actualAwayScore);
 	}
 }
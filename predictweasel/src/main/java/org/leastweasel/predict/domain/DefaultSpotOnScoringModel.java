@@ -20,17 +20,26 @@ public class DefaultSpotOnScoringModel implements Scorer {
 	public int getPointsScored(MatchResult predictedScore, MatchResult actualScore) {
 
         // We're not interested in incomplete scenarios.
-        if ((predictedScore == null) || (actualScore == null)) {
+        if ((predictedScore == null) || (actualScore == null) ||
+        		!predictedScore.isComplete() || !actualScore.isComplete()) {
             return 0;
         }
 
+        return getPointsScored(predictedScore.getHomeScore(), predictedScore.getAwayScore(),
+        					   actualScore.getHomeScore(), actualScore.getAwayScore());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getPointsScored(int predictedHomeScore, int predictedAwayScore,
+							   int actualHomeScore, int actualAwayScore) {
         int points = 0;
 
         // Check for a correct result.
 
-        if (predictedScore.getHomeScore() == actualScore.getHomeScore() &&
-        		predictedScore.getAwayScore() == actualScore.getAwayScore()) {
-        	
+        if (predictedHomeScore == actualHomeScore && predictedAwayScore == actualAwayScore) {
             points += POINTS_FOR_CORRECT_RESULT;
         }
 
@@ -0,0 +1,178 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.leastweasel.predict.web.domain.PredictionBean;
+
+/**
+ * An immutable snapshot of the predictions a single {@link User} made for the
+ * {@link Fixture}s of a {@link Competition} that have kicked off, most recent first.
+ * <p>
+ * A prediction can't change once its fixture has started, so the snapshot only has to be
+ * added to when the next fixture kicks off, and changed when one of its fixtures gets a
+ * result. Both give a new snapshot, leaving this one as it was. The predictions mustn't
+ * be changed by anything that reads them.
+ * <p>
+ * Fixtures added to the competition, or moved, directly in the database aren't noticed by
+ * either, so every snapshot records when it was first built, letting a cache rebuild it from
+ * scratch after a while.
+ */
+public class FixedPredictions {
+	private final Long userId;
+
+	private final Long competitionId;
+
+	private final List<Prediction> predictions;
+
+	private final DateTime nextKickoff;
+
+	private final long builtTime;
+
+	/**
+	 * Constructor, for a snapshot built from scratch now. The list of predictions is copied
+	 * so that the snapshot can't be changed.
+	 *
+	 * @param userId the ID of the user who made the predictions
+	 * @param competitionId the ID of the competition whose fixtures they're for
+	 * @param predictions the predictions for the started fixtures, most recent first
+	 * @param nextKickoff the time the competition's next fixture starts, or null if they
+	 * 		  have all started
+	 */
+	public FixedPredictions(Long userId, Long competitionId, List<Prediction> predictions, DateTime nextKickoff) {
+		this(userId, competitionId, predictions, nextKickoff, System.currentTimeMillis());
+	}
+
+	/**
+	 * Constructor, for a snapshot derived from another.
+	 *
+	 * @param userId the ID of the user who made the predictions
+	 * @param competitionId the ID of the competition whose fixtures they're for
+	 * @param predictions the predictions for the started fixtures, most recent first
+	 * @param nextKickoff the time the competition's next fixture starts, or null if they
+	 * 		  have all started
+	 * @param builtTime the time, in milliseconds, the original snapshot was built from scratch
+	 */
+	private FixedPredictions(Long userId, Long competitionId, List<Prediction> predictions, DateTime nextKickoff,
+							 long builtTime) {
+		this.userId = userId;
+		this.competitionId = competitionId;
+		this.predictions = Collections.unmodifiableList(new ArrayList<>(predictions));
+		this.nextKickoff = nextKickoff;
+		this.builtTime = builtTime;
+	}
+
+	/**
+	 * Get the ID of the user who made the predictions.
+	 *
+	 * @return the user ID
+	 */
+	public Long getUserId() {
+		return userId;
+	}
+
+	/**
+	 * Get the ID of the competition whose fixtures the predictions are for.
+	 *
+	 * @return the competition ID
+	 */
+	public Long getCompetitionId() {
+		return competitionId;
+	}
+
+	/**
+	 * Get the predictions for the fixtures that had started when the snapshot was taken.
+	 *
+	 * @return the predictions, most recent first, which can't be changed
+	 */
+	public List<Prediction> getPredictions() {
+		return predictions;
+	}
+
+	/**
+	 * Get the time the first fixture not in the snapshot starts.
+	 *
+	 * @return the next kickoff time, or null if every fixture is in the snapshot
+	 */
+	public DateTime getNextKickoff() {
+		return nextKickoff;
+	}
+
+	/**
+	 * Get the time the snapshot, or the one it was derived from, was built from scratch.
+	 *
+	 * @return the time, in milliseconds
+	 */
+	public long getBuiltTime() {
+		return builtTime;
+	}
+
+	/**
+	 * Is the snapshot still complete at the given time? It is until the next fixture has
+	 * started, that is until its kickoff time is before the given time.
+	 *
+	 * @param now the current time
+	 * @return true if no fixture missing from the snapshot has started
+	 */
+	public boolean isCompleteAt(DateTime now) {
+		return nextKickoff == null || !nextKickoff.isBefore(now);
+	}
+
+	/**
+	 * Create a snapshot that adds the predictions for fixtures that have started since this
+	 * one was taken.
+	 *
+	 * @param startedPredictions the predictions for the newly started fixtures, most recent first
+	 * @param newNextKickoff the time the first fixture that still hasn't started kicks off,
+	 * 		  or null if they all have
+	 * @return the new snapshot
+	 */
+	public FixedPredictions withStartedPredictions(List<Prediction> startedPredictions, DateTime newNextKickoff) {
+		List<Prediction> allPredictions = new ArrayList<>(startedPredictions.size() + predictions.size());
+
+		allPredictions.addAll(startedPredictions);
+		allPredictions.addAll(predictions);
+
+		return new FixedPredictions(userId, competitionId, allPredictions, newNextKickoff, builtTime);
+	}
+
+	/**
+	 * Create a snapshot in which the prediction for the given fixture refers to it, so
+	 * showing its new result.
+	 *
+	 * @param fixture the fixture whose result has changed
+	 * @return the new snapshot, or this one if the fixture isn't in it
+	 */
+	public FixedPredictions withResult(Fixture fixture) {
+		List<Prediction> updatedPredictions = null;
+
+		for (int i = 0; i < predictions.size(); i++) {
+			Prediction prediction = predictions.get(i);
+
+			if (prediction.getFixture().getId().equals(fixture.getId())) {
+				if (updatedPredictions == null) {
+					updatedPredictions = new ArrayList<>(predictions);
+				}
+
+				PredictionBean bean = new PredictionBean(prediction);
+
+				bean.setFixture(fixture);
+				bean.setStarted(true);
+
+				updatedPredictions.set(i, bean);
+			}
+		}
+
+		if (updatedPredictions == null) {
+			return this;
+		}
+
+		return new FixedPredictions(userId, competitionId, updatedPredictions, nextKickoff, builtTime);
+	}
+}
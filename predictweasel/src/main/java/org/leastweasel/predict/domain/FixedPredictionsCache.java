@@ -0,0 +1,167 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of {@link FixedPredictions} snapshots, keyed on user and competition. Players
+ * spend match days looking through each other's predictions, none of which can change
+ * once its fixture has started, so each snapshot is built once and then only added to as
+ * fixtures kick off.
+ * <p>
+ * When a fixture gets a result the snapshots holding it are replaced, in place, by ones
+ * showing the result. The cache is bounded, throwing out the least recently used
+ * snapshots once full, and snapshots expire a while after they were first built, so that
+ * fixtures added or moved directly in the database are eventually picked up.
+ * <p>
+ * A snapshot that was being built while a result was saved may show the old result, so
+ * every change moves the cache on a generation. A snapshot is only added if nothing has
+ * changed since the caller got the generation, before it started building the snapshot.
+ */
+public class FixedPredictionsCache {
+	private final Map<String, FixedPredictions> fixedPredictions;
+
+	private final AtomicLong generation = new AtomicLong();
+
+	private final long expiryMillis;
+
+	private static final Logger logger = LoggerFactory.getLogger(FixedPredictionsCache.class);
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maximumSize the maximum number of snapshots held
+	 * @param expirySeconds how long each snapshot is held after it was first built
+	 */
+	public FixedPredictionsCache(final int maximumSize, int expirySeconds) {
+		this.expiryMillis = expirySeconds * 1000L;
+		this.fixedPredictions = new LinkedHashMap<String, FixedPredictions>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, FixedPredictions> eldest) {
+				return size() > maximumSize;
+			}
+		};
+	}
+
+	/**
+	 * Get the current generation of the cache, which must be done before building a
+	 * snapshot to add to it.
+	 *
+	 * @return the current generation
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Get the snapshot of the predictions a user made for a competition's started fixtures.
+	 *
+	 * @param user the user who made the predictions
+	 * @param competition the competition whose fixtures they're for
+	 * @return the snapshot, or null if it isn't in the cache or has expired
+	 */
+	public synchronized FixedPredictions getFixedPredictions(User user, Competition competition) {
+		String key = createKey(user.getId(), competition.getId());
+		FixedPredictions predictions = fixedPredictions.get(key);
+
+		if (predictions != null && predictions.getBuiltTime() + expiryMillis < System.currentTimeMillis()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Cached predictions of user ID: {} for competition ID: {} have expired",
+							 user.getId(), competition.getId());
+			}
+
+			fixedPredictions.remove(key);
+
+			return null;
+		}
+
+		return predictions;
+	}
+
+	/**
+	 * Add a snapshot to the cache, replacing any already held for the same user and
+	 * competition, unless anything has changed since it was started.
+	 *
+	 * @param predictions the snapshot
+	 * @param startingGeneration the generation of the cache before the snapshot was built
+	 * @return true if the snapshot was added
+	 */
+	public synchronized boolean putFixedPredictions(FixedPredictions predictions, long startingGeneration) {
+		if (generation.get() != startingGeneration) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not caching predictions of user ID: {} for competition ID: {} as they may be out of date",
+							 predictions.getUserId(), predictions.getCompetitionId());
+			}
+
+			return false;
+		}
+
+		fixedPredictions.put(createKey(predictions.getUserId(), predictions.getCompetitionId()), predictions);
+
+		return true;
+	}
+
+	/**
+	 * Bring every snapshot holding a fixture up to date with its result.
+	 *
+	 * @param fixture the fixture whose result has changed
+	 */
+	public synchronized void updateResult(Fixture fixture) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Updating cached predictions with the result of fixture ID: {}", fixture.getId());
+		}
+
+		generation.incrementAndGet();
+
+		Long competitionId = fixture.getCompetition().getId();
+
+		// Replacing a value isn't a structural change, so doesn't upset the iteration.
+		for (Map.Entry<String, FixedPredictions> entry : fixedPredictions.entrySet()) {
+			if (entry.getValue().getCompetitionId().equals(competitionId)) {
+				entry.setValue(entry.getValue().withResult(fixture));
+			}
+		}
+	}
+
+	/**
+	 * Throw every snapshot of a user's predictions out of the cache, probably because one
+	 * was saved after its fixture had started.
+	 *
+	 * @param userId the ID of the user whose predictions are to be evicted
+	 */
+	public synchronized void evictUser(Long userId) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Evicting cached predictions of user ID: {}", userId);
+		}
+
+		generation.incrementAndGet();
+
+		for (Iterator<FixedPredictions> i = fixedPredictions.values().iterator(); i.hasNext();) {
+			if (i.next().getUserId().equals(userId)) {
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Create the key under which a user's snapshot for a competition is held.
+	 *
+	 * @param userId the ID of the user
+	 * @param competitionId the ID of the competition
+	 * @return the key
+	 */
+	private String createKey(Long userId, Long competitionId) {
+		return userId + ":" + competitionId;
+	}
+}
@@ -11,14 +11,18 @@ import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 import javax.persistence.Transient;
 import javax.validation.constraints.NotNull;
 
 import org.apache.commons.lang.builder.CompareToBuilder;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
@@ -27,6 +31,8 @@ import org.joda.time.format.DateTimeFormatter;
  * A fixture, a match between two teams.
  */
 @Entity
+@Table(indexes = @Index(name = "fixture_competition_match_time", columnList = "competition_id, matchTime"))
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Fixture implements Serializable, Comparable<Fixture> {
 
 	private static final long serialVersionUID = 1L;
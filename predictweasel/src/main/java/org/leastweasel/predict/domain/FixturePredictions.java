@@ -0,0 +1,81 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.leastweasel.predict.web.domain.FixturePredictionBean;
+
+/**
+ * An immutable snapshot of the predictions made by the players of a single {@link League}
+ * for a {@link Fixture} that has kicked off, along with the points each has scored for the
+ * league's prizes and the {@link ScorelineDistribution} of what they predicted.
+ * <p>
+ * Once a fixture has started its predictions can't change, so a snapshot stays valid until
+ * the fixture's result, and so the points scored, changes. The predictions mustn't be
+ * changed by anything that reads them.
+ */
+public class FixturePredictions {
+	private final Long leagueId;
+
+	private final Long fixtureId;
+
+	private final List<FixturePredictionBean> predictions;
+
+	private final ScorelineDistribution scorelineDistribution;
+
+	/**
+	 * Constructor. The list of predictions is copied so that the snapshot can't be changed,
+	 * and their scorelines are counted.
+	 *
+	 * @param leagueId the ID of the league whose players made the predictions
+	 * @param fixtureId the ID of the fixture the predictions are for
+	 * @param predictions the predictions, with the points each has scored, in display order
+	 */
+	public FixturePredictions(Long leagueId, Long fixtureId, List<FixturePredictionBean> predictions) {
+		this.leagueId = leagueId;
+		this.fixtureId = fixtureId;
+		this.predictions = Collections.unmodifiableList(new ArrayList<>(predictions));
+		this.scorelineDistribution = new ScorelineDistribution(predictions);
+	}
+
+	/**
+	 * Get the ID of the league whose players made the predictions.
+	 *
+	 * @return the league ID
+	 */
+	public Long getLeagueId() {
+		return leagueId;
+	}
+
+	/**
+	 * Get the ID of the fixture the predictions are for.
+	 *
+	 * @return the fixture ID
+	 */
+	public Long getFixtureId() {
+		return fixtureId;
+	}
+
+	/**
+	 * Get the predictions, with the points each has scored for the league's prizes.
+	 *
+	 * @return the predictions, which can't be changed
+	 */
+	public List<FixturePredictionBean> getPredictions() {
+		return predictions;
+	}
+
+	/**
+	 * Get the spread of scorelines predicted.
+	 *
+	 * @return the scoreline distribution
+	 */
+	public ScorelineDistribution getScorelineDistribution() {
+		return scorelineDistribution;
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of {@link FixturePredictions} snapshots, keyed on league and fixture. Everyone in a
+ * league tends to look at a fixture's predictions the moment it kicks off, and they can't
+ * change from then on, so each league's snapshot is built once and shared.
+ * <p>
+ * A fixture's snapshots are evicted when its result is saved, as that changes the points
+ * they show, and a league's are evicted when a player joins it. The cache is bounded,
+ * throwing out the least recently used snapshots once full.
+ * <p>
+ * A snapshot that was being built while snapshots were evicted may have been built from
+ * out-of-date points, so every eviction moves the cache on a generation. A snapshot is only
+ * added if no eviction has happened since the caller got the generation, before it started
+ * building the snapshot.
+ */
+public class FixturePredictionsCache {
+	private final Map<String, FixturePredictions> fixturePredictions;
+
+	private final AtomicLong generation = new AtomicLong();
+
+	private static final Logger logger = LoggerFactory.getLogger(FixturePredictionsCache.class);
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maximumSize the maximum number of snapshots held
+	 */
+	public FixturePredictionsCache(final int maximumSize) {
+		this.fixturePredictions = new LinkedHashMap<String, FixturePredictions>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, FixturePredictions> eldest) {
+				return size() > maximumSize;
+			}
+		};
+	}
+
+	/**
+	 * Get the current generation of the cache, which must be done before building a
+	 * snapshot to add to it.
+	 *
+	 * @return the current generation
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Get the snapshot of the predictions made by a league's players for a fixture.
+	 *
+	 * @param league the league whose players made the predictions
+	 * @param fixture the fixture the predictions are for
+	 * @return the snapshot, or null if it isn't in the cache
+	 */
+	public synchronized FixturePredictions getFixturePredictions(League league, Fixture fixture) {
+		return fixturePredictions.get(createKey(league.getId(), fixture.getId()));
+	}
+
+	/**
+	 * Add a snapshot to the cache, unless anything has been evicted since it was started.
+	 *
+	 * @param predictions the snapshot
+	 * @param startingGeneration the generation of the cache before the snapshot was built
+	 * @return true if the snapshot was added
+	 */
+	public synchronized boolean putFixturePredictions(FixturePredictions predictions, long startingGeneration) {
+		if (generation.get() != startingGeneration) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not caching predictions for fixture ID: {} in league ID: {} as they may be out of date",
+							 predictions.getFixtureId(), predictions.getLeagueId());
+			}
+
+			return false;
+		}
+
+		fixturePredictions.put(createKey(predictions.getLeagueId(), predictions.getFixtureId()), predictions);
+
+		return true;
+	}
+
+	/**
+	 * Throw every league's snapshot for a fixture out of the cache, probably because its
+	 * result has changed.
+	 *
+	 * @param fixture the fixture whose predictions are to be evicted
+	 */
+	public void evictFixture(Fixture fixture) {
+		evictFixture(fixture.getId());
+	}
+
+	/**
+	 * Throw every league's snapshot for a fixture out of the cache.
+	 *
+	 * @param fixtureId the ID of the fixture whose predictions are to be evicted
+	 */
+	public synchronized void evictFixture(Long fixtureId) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Evicting cached predictions for fixture ID: {}", fixtureId);
+		}
+
+		generation.incrementAndGet();
+
+		for (Iterator<FixturePredictions> i = fixturePredictions.values().iterator(); i.hasNext();) {
+			if (i.next().getFixtureId().equals(fixtureId)) {
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Throw every snapshot for a league out of the cache, probably because a player has
+	 * joined it.
+	 *
+	 * @param league the league whose predictions are to be evicted
+	 */
+	public synchronized void evictLeague(League league) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Evicting cached predictions for league ID: {}", league.getId());
+		}
+
+		generation.incrementAndGet();
+
+		for (Iterator<FixturePredictions> i = fixturePredictions.values().iterator(); i.hasNext();) {
+			if (i.next().getLeagueId().equals(league.getId())) {
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Throw every snapshot out of the cache.
+	 */
+	public synchronized void clear() {
+		generation.incrementAndGet();
+
+		fixturePredictions.clear();
+	}
+
+	/**
+	 * Create the key under which a league's snapshot for a fixture is held.
+	 *
+	 * @param leagueId the ID of the league
+	 * @param fixtureId the ID of the fixture
+	 * @return the key
+	 */
+	private String createKey(Long leagueId, Long fixtureId) {
+		return leagueId + ":" + fixtureId;
+	}
+}
@@ -23,6 +23,8 @@ import javax.validation.constraints.Size;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.NotBlank;
 
 /**
@@ -35,6 +37,7 @@ import org.hibernate.validator.constraints.NotBlank;
  * <i>This class maps to the LEAGUE table in the database</i>.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class League implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -0,0 +1,209 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An immutable snapshot of the {@link PlayerStanding}s for every {@link Prize} offered by
+ * a single {@link League}. The standings for all of a league's prizes are calculated
+ * together and published to the {@link StandingsCache} in one go, so a reader always sees
+ * a consistent set of tables.
+ * <p>
+ * When a result only changes some of the players' totals, {@link #applyChanges(Map)} builds
+ * the next snapshot from this one by moving just those players, rather than sorting the
+ * whole league again.
+ * <p>
+ * Each prize's standings are indexed on player ID, so a player's own row can be found
+ * without searching the table.
+ * <p>
+ * Every snapshot has a version that's different from that of any other snapshot created since
+ * the application started, or before. Clients can use it to tell whether anything's changed.
+ */
+public class LeagueStandings {
+	/**
+	 * The source of snapshot versions. It starts at the time the application started so
+	 * versions aren't reused after a restart.
+	 */
+	private static final AtomicLong nextVersion = new AtomicLong(System.currentTimeMillis());
+	
+	private final Long leagueId;
+	
+	private final long version = nextVersion.getAndIncrement();
+	
+	private final Map<String, List<PlayerStanding>> prizeStandings;
+
+	/**
+	 * The index of each player in each prize's standings, keyed on prize code and then on the
+	 * ID of the player.
+	 */
+	private final Map<String, Map<Long, Integer>> playerIndexes;
+
+	/**
+	 * Constructor. The standings are copied so later changes to the given map, or the
+	 * lists in it, won't affect this snapshot.
+	 * 
+	 * @param leagueId the ID of the league whose standings these are
+	 * @param prizeStandings the standings for each of the league's prizes, keyed on prize code
+	 */
+	public LeagueStandings(Long leagueId, Map<String, List<PlayerStanding>> prizeStandings) {
+		Map<String, List<PlayerStanding>> copy = new HashMap<>();
+		Map<String, Map<Long, Integer>> indexes = new HashMap<>();
+		
+		for (Map.Entry<String, List<PlayerStanding>> entry : prizeStandings.entrySet()) {
+			List<PlayerStanding> standings = new ArrayList<>(entry.getValue());
+			Map<Long, Integer> playerIndex = new HashMap<>(standings.size() * 4 / 3 + 1);
+			
+			for (int i = 0; i < standings.size(); i++) {
+				playerIndex.put(standings.get(i).getPlayer().getId(), i);
+			}
+			
+			copy.put(entry.getKey(), Collections.unmodifiableList(standings));
+			indexes.put(entry.getKey(), playerIndex);
+		}
+		
+		this.leagueId = leagueId;
+		this.prizeStandings = Collections.unmodifiableMap(copy);
+		this.playerIndexes = indexes;
+	}
+
+	/**
+	 * Get the ID of the league whose standings these are.
+	 * 
+	 * @return the league's ID
+	 */
+	public Long getLeagueId() {
+		return leagueId;
+	}
+
+	/**
+	 * Get the version of this snapshot.
+	 * 
+	 * @return a number that identifies this snapshot
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get the standings for the given prize. The returned list can't be modified.
+	 * 
+	 * @param prizeCode the code of the prize whose standings we want
+	 * @return the standings, or an empty list if the league doesn't offer the prize
+	 */
+	public List<PlayerStanding> getStandings(String prizeCode) {
+		List<PlayerStanding> standings = prizeStandings.get(prizeCode);
+		
+		if (standings == null) {
+			return Collections.emptyList();
+		}
+		
+		return standings;
+	}
+
+	/**
+	 * Get the index of a player in the standings for the given prize.
+	 * 
+	 * @param prizeCode the code of the prize whose standings we want
+	 * @param player the player to look for
+	 * @return the index of the player's standing, or -1 if they aren't in the standings
+	 */
+	public int getIndex(String prizeCode, User player) {
+		Map<Long, Integer> playerIndex = playerIndexes.get(prizeCode);
+		
+		if (playerIndex == null || player == null) {
+			return -1;
+		}
+		
+		Integer index = playerIndex.get(player.getId());
+		
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Create a new snapshot by applying changes in some players' points to this one, which
+	 * isn't itself changed. Each changed player is taken out of the standings and merged
+	 * back in at their new place; everyone else keeps their relative order, so this takes
+	 * time proportional to the size of the league, rather than the time to sort it. Players
+	 * who aren't in the standings yet are added. Tied players share a position, as they do
+	 * when the standings are calculated from scratch.
+	 * 
+	 * @param changes the new standings (without positions) of the players whose points have
+	 * 		  changed, keyed on prize code and then on the ID of the player
+	 * @return the new snapshot
+	 */
+	public LeagueStandings applyChanges(Map<String, Map<Long, PlayerStanding>> changes) {
+		Map<String, List<PlayerStanding>> newStandings = new HashMap<>(prizeStandings);
+		
+		for (Map.Entry<String, Map<Long, PlayerStanding>> entry : changes.entrySet()) {
+			if (!entry.getValue().isEmpty()) {
+				newStandings.put(entry.getKey(), merge(getStandings(entry.getKey()), entry.getValue()));
+			}
+		}
+		
+		return new LeagueStandings(leagueId, newStandings);
+	}
+	
+	/**
+	 * Merge the changed players back into a prize's standings, then update the positions.
+	 * 
+	 * @param standings the prize's current standings, in order
+	 * @param changes the new standings of the players whose points have changed, keyed on player ID
+	 * @return the new standings, in order
+	 */
+	private static List<PlayerStanding> merge(List<PlayerStanding> standings, Map<Long, PlayerStanding> changes) {
+		List<PlayerStanding> moved = new ArrayList<>(changes.values());
+		List<PlayerStanding> merged = new ArrayList<>(standings.size() + moved.size());
+		int next = 0;
+		
+		Collections.sort(moved);
+		
+		for (PlayerStanding standing : standings) {
+			if (changes.containsKey(standing.getPlayer().getId())) {
+				continue;
+			}
+			
+			while (next < moved.size() && moved.get(next).compareTo(standing) < 0) {
+				merged.add(moved.get(next++));
+			}
+			
+			merged.add(standing);
+		}
+		
+		while (next < moved.size()) {
+			merged.add(moved.get(next++));
+		}
+		
+		// The standings in the current snapshot may be being read, so rather than changing
+		// the position of one we replace it with a copy.
+		
+        int lastPoints = Integer.MAX_VALUE;
+        int position = 0;
+        int ties = 0;
+
+        for (int i = 0; i < merged.size(); i++) {
+        	PlayerStanding standing = merged.get(i);
+        	
+            if (standing.getPointsScored() < lastPoints) {
+                position += ties + 1;
+                lastPoints = standing.getPointsScored();
+                ties = 0;
+            } else {
+                ties++;
+            }
+
+            if (standing.getPosition() != position) {
+            	merged.set(i, new PlayerStanding(standing.getPlayer(), position, standing.getPointsScored()));
+            }
+        }
+        
+		return merged;
+	}
+}
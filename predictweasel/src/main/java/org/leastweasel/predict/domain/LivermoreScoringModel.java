@@ -27,25 +27,35 @@ public class LivermoreScoringModel implements Scorer {
 	public int getPointsScored(MatchResult predictedScore, MatchResult actualScore) {
 
         // We're not interested in incomplete scenarios.
-        if ((predictedScore == null) || (actualScore == null)) {
+        if ((predictedScore == null) || (actualScore == null) ||
+        		!predictedScore.isComplete() || !actualScore.isComplete()) {
             return 0;
         }
 
+        return getPointsScored(predictedScore.getHomeScore(), predictedScore.getAwayScore(),
+        					   actualScore.getHomeScore(), actualScore.getAwayScore());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getPointsScored(int predictedHomeScore, int predictedAwayScore,
+							   int actualHomeScore, int actualAwayScore) {
         int points = 0;
 
         // Check for a correct result.
 
-        if (predictedScore.isSameOutcome(actualScore)) {
+        if (Integer.signum(predictedHomeScore - predictedAwayScore) ==
+        		Integer.signum(actualHomeScore - actualAwayScore)) {
             points += POINTS_FOR_CORRECT_RESULT;
         }
 
         // Check for the difference in the scores.
 
-        int predictedDifference = predictedScore.getHomeScore() -
-                                  predictedScore.getAwayScore();
+        int predictedDifference = predictedHomeScore - predictedAwayScore;
 
-        int actualDifference = actualScore.getHomeScore() -
-                               actualScore.getAwayScore();
+        int actualDifference = actualHomeScore - actualAwayScore;
 
         if (predictedDifference == actualDifference) {
             points += Math.abs (predictedDifference);
@@ -53,18 +63,16 @@ public class LivermoreScoringModel implements Scorer {
 
         // Check the individual scores.
 
-        if (predictedScore.getHomeScore() == actualScore.getHomeScore()) {
-            points += predictedScore.getHomeScore();
+        if (predictedHomeScore == actualHomeScore) {
+            points += predictedHomeScore;
         } else {
-            points -= Math.abs(predictedScore.getHomeScore() -
-                               actualScore.getHomeScore());
+            points -= Math.abs(predictedHomeScore - actualHomeScore);
         }
 
-        if (predictedScore.getAwayScore() == actualScore.getAwayScore()) {
-            points += predictedScore.getAwayScore();
+        if (predictedAwayScore == actualAwayScore) {
+            points += predictedAwayScore;
         } else {
-            points -= Math.abs(predictedScore.getAwayScore() -
-                               actualScore.getAwayScore());
+            points -= Math.abs(predictedAwayScore - actualAwayScore);
         }
 
         return points;
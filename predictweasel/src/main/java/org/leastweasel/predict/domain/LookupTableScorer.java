@@ -0,0 +1,124 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+/**
+ * A {@link Scorer} that speeds up another scorer by looking its answers up in a table. The
+ * wrapped scorer must be a pure function of the four goal counts, which all of ours are.
+ * <p>
+ * The table holds the points for every combination of predicted and actual score in which
+ * neither team scores more than a given number of goals. Practically every prediction and
+ * result falls within a bound of 9, so scoring is a single array lookup. Anything outside
+ * the bound is passed to the wrapped scorer.
+ */
+public class LookupTableScorer implements Scorer {
+	/**
+	 * The scorer whose answers are in the table, and which scores anything outside it.
+	 */
+	private final Scorer delegate;
+
+	private final int maximumGoals;
+
+	/**
+	 * The number of possible goal counts per team in the table, i.e. 0 to maximumGoals.
+	 */
+	private final int size;
+
+	/**
+	 * The points for each combination, indexed on predicted home, predicted away, actual home
+	 * and actual away goals, in that order.
+	 */
+	private final int[] points;
+
+	/**
+	 * Constructor. Builds the table by asking the delegate for every combination.
+	 *
+	 * @param delegateScorer the scorer we're speeding up
+	 * @param maximumGoals the largest number of goals for a team that's held in the table
+	 */
+	public LookupTableScorer(Scorer delegateScorer, int maximumGoals) {
+		if (delegateScorer == null) {
+			throw new IllegalArgumentException("Delegate scorer cannot be null");
+		}
+
+		if (maximumGoals < 0) {
+			throw new IllegalArgumentException("Maximum number of goals cannot be negative");
+		}
+
+		this.delegate = delegateScorer;
+		this.maximumGoals = maximumGoals;
+		this.size = maximumGoals + 1;
+		this.points = new int[size * size * size * size];
+
+		for (int predictedHomeScore = 0; predictedHomeScore < size; predictedHomeScore++) {
+			for (int predictedAwayScore = 0; predictedAwayScore < size; predictedAwayScore++) {
+				for (int actualHomeScore = 0; actualHomeScore < size; actualHomeScore++) {
+					for (int actualAwayScore = 0; actualAwayScore < size; actualAwayScore++) {
+						points[getIndex(predictedHomeScore, predictedAwayScore, actualHomeScore, actualAwayScore)] =
+								delegate.getPointsScored(predictedHomeScore, predictedAwayScore,
+														 actualHomeScore, actualAwayScore);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getPointsScored(MatchResult predictedScore, MatchResult actualScore) {
+
+        // We're not interested in incomplete scenarios.
+        if ((predictedScore == null) || (actualScore == null) ||
+        		!predictedScore.isComplete() || !actualScore.isComplete()) {
+            return 0;
+        }
+
+        return getPointsScored(predictedScore.getHomeScore(), predictedScore.getAwayScore(),
+        					   actualScore.getHomeScore(), actualScore.getAwayScore());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getPointsScored(int predictedHomeScore, int predictedAwayScore,
+							   int actualHomeScore, int actualAwayScore) {
+
+		// The goal counts are all in the table if none of them is negative or too big.
+
+		if ((predictedHomeScore | predictedAwayScore | actualHomeScore | actualAwayScore) >= 0 &&
+				Math.max(Math.max(predictedHomeScore, predictedAwayScore),
+						 Math.max(actualHomeScore, actualAwayScore)) <= maximumGoals) {
+
+			return points[getIndex(predictedHomeScore, predictedAwayScore, actualHomeScore, actualAwayScore)];
+		}
+
+		return delegate.getPointsScored(predictedHomeScore, predictedAwayScore, actualHomeScore, actualAwayScore);
+	}
+
+	/**
+	 * Get the largest number of goals for a team that's held in the table.
+	 *
+	 * @return the maximum number of goals
+	 */
+	public int getMaximumGoals() {
+		return maximumGoals;
+	}
+
+	/**
+	 * Get the position in the table of the given combination of goals.
+	 *
+	 * @param predictedHomeScore the predicted number of goals for the home team
+	 * @param predictedAwayScore the predicted number of goals for the away team
+	 * @param actualHomeScore the actual number of goals for the home team
+	 * @param actualAwayScore the actual number of goals for the away team
+	 * @return the index of the combination's points in the table
+	 */
+	private int getIndex(int predictedHomeScore, int predictedAwayScore, int actualHomeScore, int actualAwayScore) {
+		return ((predictedHomeScore * size + predictedAwayScore) * size + actualHomeScore) * size + actualAwayScore;
+	}
+}
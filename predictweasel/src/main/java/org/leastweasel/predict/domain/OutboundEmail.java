@@ -0,0 +1,251 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.joda.time.DateTime;
+
+/**
+ * An email waiting in the outbox to be sent, or one that has already been sent. Emails are
+ * recorded here before being handed to the mail server, so that a slow or unavailable server
+ * doesn't hold up the request that sent them and they aren't lost if the application is
+ * restarted before they've gone.
+ * <p>
+ * <i>This class maps to the OUTBOUND_EMAIL table in the database</i>.
+ */
+@Entity
+public class OutboundEmail implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Long id;
+	
+	private String recipient;
+	
+	private String subject;
+	
+	private String messageText;
+	
+	private DateTime createdTime;
+	
+	private int attempts;
+	
+	private DateTime nextAttemptTime;
+	
+	private DateTime sentTime;
+	
+	private String lastError;
+
+	/**
+	 * Default constructor.
+	 */
+	public OutboundEmail() {
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param email the subject and text of the email
+	 * @param recipient the address to send it to
+	 * @param createdTime the time the email was created, which is also the time it's first due to be sent
+	 */
+	public OutboundEmail(EmailDetails email, String recipient, DateTime createdTime) {
+		this.recipient = recipient;
+		this.subject = email.getSubject();
+		this.messageText = email.getMessageText();
+		this.createdTime = createdTime;
+		this.nextAttemptTime = createdTime;
+	}
+	
+    /**
+     * Get the entity's unique id (generated by its data source). Will be null if not persistent.
+     * 
+     * @return the entity's unique id
+     */
+	@Id
+	@GeneratedValue
+	public Long getId() {
+		return id;
+	}
+
+	/**
+	 * Set the entity's unique id.
+	 * 
+	 * @param id the unique id
+	 */
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	/**
+	 * Get the address the email is to be sent to.
+	 * 
+	 * @return the recipient's email address
+	 */
+	public String getRecipient() {
+		return recipient;
+	}
+
+	/**
+	 * Set the address the email is to be sent to.
+	 * 
+	 * @param recipient the recipient's email address
+	 */
+	public void setRecipient(String recipient) {
+		this.recipient = recipient;
+	}
+
+	/**
+	 * Get the subject of the email.
+	 * 
+	 * @return the subject
+	 */
+	public String getSubject() {
+		return subject;
+	}
+
+	/**
+	 * Set the subject of the email.
+	 * 
+	 * @param subject the subject
+	 */
+	public void setSubject(String subject) {
+		this.subject = subject;
+	}
+
+	/**
+	 * Get the body of the email.
+	 * 
+	 * @return the message text
+	 */
+	@Column(length = 65535)
+	public String getMessageText() {
+		return messageText;
+	}
+
+	/**
+	 * Set the body of the email.
+	 * 
+	 * @param messageText the message text
+	 */
+	public void setMessageText(String messageText) {
+		this.messageText = messageText;
+	}
+
+	/**
+	 * Get the time the email was put in the outbox.
+	 * 
+	 * @return the creation time
+	 */
+	@Convert(converter = DateTimeToDateConverter.class)
+	public DateTime getCreatedTime() {
+		return createdTime;
+	}
+
+	/**
+	 * Set the time the email was put in the outbox.
+	 * 
+	 * @param createdTime the creation time
+	 */
+	public void setCreatedTime(DateTime createdTime) {
+		this.createdTime = createdTime;
+	}
+
+	/**
+	 * Get the number of times we've tried to send the email.
+	 * 
+	 * @return the number of attempts
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * Set the number of times we've tried to send the email.
+	 * 
+	 * @param attempts the number of attempts
+	 */
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	/**
+	 * Get the time after which we should next try to send the email, if it hasn't been sent.
+	 * 
+	 * @return the time of the next attempt
+	 */
+	@Convert(converter = DateTimeToDateConverter.class)
+	public DateTime getNextAttemptTime() {
+		return nextAttemptTime;
+	}
+
+	/**
+	 * Set the time after which we should next try to send the email.
+	 * 
+	 * @param nextAttemptTime the time of the next attempt
+	 */
+	public void setNextAttemptTime(DateTime nextAttemptTime) {
+		this.nextAttemptTime = nextAttemptTime;
+	}
+
+	/**
+	 * Get the time the email was accepted by the mail server.
+	 * 
+	 * @return the time the email was sent, or null if it hasn't been
+	 */
+	@Convert(converter = DateTimeToDateConverter.class)
+	public DateTime getSentTime() {
+		return sentTime;
+	}
+
+	/**
+	 * Set the time the email was accepted by the mail server.
+	 * 
+	 * @param sentTime the time the email was sent
+	 */
+	public void setSentTime(DateTime sentTime) {
+		this.sentTime = sentTime;
+	}
+
+	/**
+	 * Get the reason the last attempt to send the email failed.
+	 * 
+	 * @return the last error, or null if there hasn't been one
+	 */
+	public String getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * Set the reason the last attempt to send the email failed.
+	 * 
+	 * @param lastError the last error
+	 */
+	public void setLastError(String lastError) {
+		this.lastError = lastError;
+	}
+
+    /**
+     * Format the object as a String.
+     *
+     * @return the generated String
+     */
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this).append("ID", id)
+                                        .append("Recipient", recipient)
+                                        .append("Subject", subject)
+                                        .append("Attempts", attempts)
+                                        .append("Sent time", sentTime)
+                                        .toString();
+    }
+}
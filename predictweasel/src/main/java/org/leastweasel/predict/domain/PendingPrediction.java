@@ -0,0 +1,108 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import org.joda.time.DateTime;
+
+/**
+ * An immutable record of a change to a user's {@link Prediction} that has been accepted, and
+ * written to the {@link PredictionJournal}, but not yet saved to the database. Each change
+ * has a sequence number so that, if a user changes the same prediction more than once, we
+ * know which is the latest.
+ */
+public class PendingPrediction {
+	private final long sequence;
+
+	private final Long userId;
+
+	private final Long fixtureId;
+
+	private final DateTime matchTime;
+
+	private final MatchResult predictedResult;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param sequence the order in which the change was made, relative to the others
+	 * @param userId the ID of the user making the prediction
+	 * @param fixtureId the ID of the fixture being predicted
+	 * @param matchTime when the fixture starts, by which time the change must have been saved
+	 * @param predictedResult the predicted result, or null if the prediction is being deleted
+	 */
+	public PendingPrediction(long sequence, Long userId, Long fixtureId, DateTime matchTime, MatchResult predictedResult) {
+		this.sequence = sequence;
+		this.userId = userId;
+		this.fixtureId = fixtureId;
+		this.matchTime = matchTime;
+		this.predictedResult = predictedResult;
+	}
+
+	/**
+	 * Get the order in which the change was made, relative to the others.
+	 *
+	 * @return the sequence number
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Get the ID of the user making the prediction.
+	 *
+	 * @return the user's ID
+	 */
+	public Long getUserId() {
+		return userId;
+	}
+
+	/**
+	 * Get the ID of the fixture being predicted.
+	 *
+	 * @return the fixture's ID
+	 */
+	public Long getFixtureId() {
+		return fixtureId;
+	}
+
+	/**
+	 * Get the time the fixture starts.
+	 *
+	 * @return the match time
+	 */
+	public DateTime getMatchTime() {
+		return matchTime;
+	}
+
+	/**
+	 * Get the predicted result.
+	 *
+	 * @return the predicted result, or null if the prediction is being deleted
+	 */
+	public MatchResult getPredictedResult() {
+		return predictedResult;
+	}
+
+	/**
+	 * Get the key that identifies the prediction being changed: the same for every change a
+	 * user makes to their prediction for a fixture.
+	 *
+	 * @return the prediction's key
+	 */
+	public String getKey() {
+		return createKey(userId, fixtureId);
+	}
+
+	/**
+	 * Create the key that identifies a user's prediction for a fixture.
+	 *
+	 * @param userId the ID of the user making the prediction
+	 * @param fixtureId the ID of the fixture being predicted
+	 * @return the prediction's key
+	 */
+	public static String createKey(Long userId, Long fixtureId) {
+		return userId + ":" + fixtureId;
+	}
+}
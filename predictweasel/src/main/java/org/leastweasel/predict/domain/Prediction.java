@@ -11,11 +11,14 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 /**
  * A prediction, made by a {@link User player}, of the expected outcome of a {@link Fixture}.
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "prediction_user_fixture", columnNames = {"user_id", "fixture_id"}))
 public class Prediction implements Serializable {
 
 	private static final long serialVersionUID = 1L;
@@ -0,0 +1,248 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only file of the {@link PendingPrediction}s that have been accepted but not yet
+ * saved to the database. Each change is forced to disk before {@link #append(Collection)}
+ * returns, so once a user has been told their prediction is saved it will survive the
+ * application being restarted: the journal is read back when it starts again.
+ * <p>
+ * Each change is a single line of text: its sequence number, the user and fixture IDs, the
+ * match time in milliseconds, the two predicted scores, with "-" for a missing score, and
+ * "S" if the prediction is being saved or "D" if it's being deleted. If the application dies
+ * part-way through writing a line it's simply ignored when the journal is read, as the user
+ * will never have been told it was saved.
+ * <p>
+ * Once changes have been saved to the database the journal is rewritten with only those
+ * that are still waiting, so it never grows much beyond a few minutes' worth of predictions.
+ */
+public class PredictionJournal {
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private static final String MISSING_SCORE = "-";
+
+	private static final Logger logger = LoggerFactory.getLogger(PredictionJournal.class);
+
+	private final Path path;
+
+	private FileChannel channel;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param fileName the name of the journal file, which is created if it doesn't exist
+	 */
+	public PredictionJournal(String fileName) {
+		this.path = Paths.get(fileName).toAbsolutePath();
+	}
+
+	/**
+	 * Open the journal so that changes can be appended to it.
+	 *
+	 * @throws IOException if the journal can't be opened
+	 */
+	public synchronized void open() throws IOException {
+		if (path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+		logger.info("Opened prediction journal: {}", path);
+	}
+
+	/**
+	 * Close the journal. Anything that's been appended has already been forced to disk.
+	 */
+	public synchronized void close() {
+		if (channel == null) {
+			return;
+		}
+
+		try {
+			channel.close();
+		} catch (IOException e) {
+			logger.warn("Unable to close prediction journal: " + path, e);
+		}
+
+		channel = null;
+	}
+
+	/**
+	 * Add some changes to the end of the journal, and wait until they've been written to disk.
+	 *
+	 * @param predictions the changes to add
+	 * @throws IOException if the changes can't be written
+	 */
+	public synchronized void append(Collection<PendingPrediction> predictions) throws IOException {
+		if (channel == null) {
+			throw new IOException("Prediction journal is not open: " + path);
+		}
+
+		write(channel, predictions);
+	}
+
+	/**
+	 * Read every change in the journal, in the order they were written.
+	 *
+	 * @return the changes in the journal
+	 * @throws IOException if the journal can't be read
+	 */
+	public synchronized List<PendingPrediction> readAll() throws IOException {
+		List<PendingPrediction> predictions = new ArrayList<>();
+
+		if (!Files.exists(path)) {
+			return predictions;
+		}
+
+		try (BufferedReader reader = Files.newBufferedReader(path, CHARSET)) {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				PendingPrediction prediction = parse(line);
+
+				if (prediction != null) {
+					predictions.add(prediction);
+				} else if (!line.isEmpty()) {
+					logger.warn("Ignoring incomplete line in prediction journal: '{}'", line);
+				}
+			}
+		}
+
+		return predictions;
+	}
+
+	/**
+	 * Replace the contents of the journal with the given changes. The new journal is written
+	 * to a temporary file which then replaces the old one, so that a failure part-way through
+	 * leaves the old journal intact.
+	 *
+	 * @param predictions the changes that the journal should contain
+	 * @throws IOException if the journal can't be rewritten
+	 */
+	public synchronized void rewrite(Collection<PendingPrediction> predictions) throws IOException {
+		Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+		try (FileChannel temporaryChannel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+															 StandardOpenOption.WRITE,
+															 StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(temporaryChannel, predictions);
+		}
+
+		close();
+
+		Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Write some changes to a file, and wait until they've reached the disk.
+	 *
+	 * @param fileChannel the file
+	 * @param predictions the changes to write
+	 * @throws IOException if the changes can't be written
+	 */
+	private void write(FileChannel fileChannel, Collection<PendingPrediction> predictions) throws IOException {
+		StringBuilder contents = new StringBuilder();
+
+		for (PendingPrediction prediction : predictions) {
+			contents.append(format(prediction));
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(contents.toString().getBytes(CHARSET));
+
+		while (buffer.hasRemaining()) {
+			fileChannel.write(buffer);
+		}
+
+		fileChannel.force(false);
+	}
+
+	/**
+	 * Turn a change into a line of the journal.
+	 *
+	 * @param prediction the change
+	 * @return the line, including the line separator
+	 */
+	private String format(PendingPrediction prediction) {
+		MatchResult predictedResult = prediction.getPredictedResult();
+
+		return new StringBuilder().append(prediction.getSequence())
+								  .append(' ').append(prediction.getUserId())
+								  .append(' ').append(prediction.getFixtureId())
+								  .append(' ').append(prediction.getMatchTime().getMillis())
+								  .append(' ').append(formatScore(predictedResult == null ? null : predictedResult.getHomeScore()))
+								  .append(' ').append(formatScore(predictedResult == null ? null : predictedResult.getAwayScore()))
+								  .append(' ').append(predictedResult == null ? "D" : "S")
+								  .append('\n').toString();
+	}
+
+	/**
+	 * Turn a line of the journal back into a change.
+	 *
+	 * @param line the line
+	 * @return the change, or null if the line is incomplete
+	 */
+	private PendingPrediction parse(String line) {
+		String[] fields = line.split(" ");
+
+		if (fields.length != 7 || !("D".equals(fields[6]) || "S".equals(fields[6]))) {
+			return null;
+		}
+
+		try {
+			MatchResult predictedResult = null;
+
+			if ("S".equals(fields[6])) {
+				predictedResult = new MatchResult(parseScore(fields[4]), parseScore(fields[5]));
+			}
+
+			return new PendingPrediction(Long.parseLong(fields[0]), Long.valueOf(fields[1]), Long.valueOf(fields[2]),
+										 new DateTime(Long.parseLong(fields[3])), predictedResult);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Turn a score into a field of the journal.
+	 *
+	 * @param score the score, which may be missing
+	 * @return the field
+	 */
+	private String formatScore(Integer score) {
+		return score == null ? MISSING_SCORE : score.toString();
+	}
+
+	/**
+	 * Turn a field of the journal back into a score.
+	 *
+	 * @param field the field
+	 * @return the score, or null if it's missing
+	 */
+	private Integer parseScore(String field) {
+		return MISSING_SCORE.equals(field) ? null : Integer.valueOf(field);
+	}
+}
@@ -57,15 +57,30 @@ public class Prize {
 			}
 		}
 		
+		MatchResult result = fixture.getResult();
+		
+		// We're not interested in incomplete scenarios.
+		if (result == null || !result.isComplete()) {
+			return 0;
+		}
+		
+		// Unbox the scores once, and score them using the primitive form of the scorers.
+		int actualHomeScore = result.getHomeScore();
+		int actualAwayScore = result.getAwayScore();
+		
 		if (predictedScore == null) {
-			// A missing prediction often incurs a penalty, so get its score separately.
+			// A missing prediction often incurs a penalty, so get its score separately. The scorer
+			// imposes its own prediction, so it doesn't matter what we pass in for it.
 			if (missingPredictionScorer != null) {
-				return missingPredictionScorer.getPointsScored(null, fixture.getResult());
+				return missingPredictionScorer.getPointsScored(0, 0, actualHomeScore, actualAwayScore);
 			} else {
 				return 0;
 			}
+		} else if (predictedScore.isComplete()) {
+			return scorer.getPointsScored(predictedScore.getHomeScore(), predictedScore.getAwayScore(),
+										  actualHomeScore, actualAwayScore);
 		} else {
-			return scorer.getPointsScored(predictedScore, fixture.getResult());
+			return 0;
 		}
 	}
 	
@@ -12,6 +12,8 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 /**
  * Records the number of points scored, for each prize, by a single
@@ -21,6 +23,8 @@ import javax.persistence.ManyToOne;
  * scored against the prediction; it has to be the {@link UserSubscription}.
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "prize_points_subscription_fixture_prize",
+											 columnNames = {"subscription_id", "fixture_id", "prizeCode"}))
 public class PrizePoints implements Serializable {
 
 	private static final long serialVersionUID = 1L;
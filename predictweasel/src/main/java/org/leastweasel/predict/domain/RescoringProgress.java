@@ -0,0 +1,167 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+/**
+ * An immutable snapshot of how far the rescoring of a {@link Competition} has got. Rescoring
+ * recalculates the {@link PrizePoints} of every prediction on every result in the competition,
+ * then the points totals and standings of its leagues.
+ */
+public class RescoringProgress {
+	/**
+	 * The stages a rescoring job goes through.
+	 */
+	public enum Stage {
+		/**
+		 * The predictions are being scored.
+		 */
+		SCORING,
+
+		/**
+		 * The points totals and standings are being recalculated.
+		 */
+		TOTALLING,
+
+		/**
+		 * Everything has been rescored.
+		 */
+		COMPLETE,
+
+		/**
+		 * Rescoring stopped because of an error.
+		 */
+		FAILED
+	}
+
+	private final String competitionName;
+
+	private final Stage stage;
+
+	private final int numberOfFixtures;
+
+	private final int fixturesScored;
+
+	private final long pointsScored;
+
+	private final long elapsedMillis;
+
+	private final String errorMessage;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param competitionName the name of the competition being rescored
+	 * @param stage the stage the job has reached
+	 * @param numberOfFixtures the number of results to be rescored
+	 * @param fixturesScored the number of results rescored so far
+	 * @param pointsScored the number of prize points calculated so far
+	 * @param elapsedMillis how long the job has been running, or ran for if it's finished
+	 * @param errorMessage why the job failed, or null if it hasn't
+	 */
+	public RescoringProgress(String competitionName, Stage stage, int numberOfFixtures, int fixturesScored,
+							 long pointsScored, long elapsedMillis, String errorMessage) {
+		this.competitionName = competitionName;
+		this.stage = stage;
+		this.numberOfFixtures = numberOfFixtures;
+		this.fixturesScored = fixturesScored;
+		this.pointsScored = pointsScored;
+		this.elapsedMillis = elapsedMillis;
+		this.errorMessage = errorMessage;
+	}
+
+	/**
+	 * Get the name of the competition being rescored.
+	 *
+	 * @return the competition's name
+	 */
+	public String getCompetitionName() {
+		return competitionName;
+	}
+
+	/**
+	 * Get the stage the job has reached.
+	 *
+	 * @return the current stage
+	 */
+	public Stage getStage() {
+		return stage;
+	}
+
+	/**
+	 * Is the job still going.
+	 *
+	 * @return true if the job is scoring or totalling
+	 */
+	public boolean isRunning() {
+		return stage == Stage.SCORING || stage == Stage.TOTALLING;
+	}
+
+	/**
+	 * Get the number of results to be rescored.
+	 *
+	 * @return the number of fixtures with a result
+	 */
+	public int getNumberOfFixtures() {
+		return numberOfFixtures;
+	}
+
+	/**
+	 * Get the number of results rescored so far.
+	 *
+	 * @return the number of fixtures rescored
+	 */
+	public int getFixturesScored() {
+		return fixturesScored;
+	}
+
+	/**
+	 * Get the percentage of results rescored so far.
+	 *
+	 * @return a percentage from 0 to 100
+	 */
+	public int getPercentComplete() {
+		if (numberOfFixtures == 0) {
+			return 100;
+		}
+
+		return (int) (fixturesScored * 100L / numberOfFixtures);
+	}
+
+	/**
+	 * Get the number of prize points calculated so far.
+	 *
+	 * @return the number of prize points
+	 */
+	public long getPointsScored() {
+		return pointsScored;
+	}
+
+	/**
+	 * Get how long the job has been running, or ran for if it's finished.
+	 *
+	 * @return the elapsed time, in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * Get the throughput of the job: the number of prize points calculated per second.
+	 *
+	 * @return the number of points per second
+	 */
+	public long getPointsPerSecond() {
+		return pointsScored * 1000L / Math.max(elapsedMillis, 1);
+	}
+
+	/**
+	 * Get the reason the job failed.
+	 *
+	 * @return a description of the error, or null if the job hasn't failed
+	 */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+}
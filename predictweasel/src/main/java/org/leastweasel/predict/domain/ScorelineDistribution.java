@@ -0,0 +1,234 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How a set of {@link Prediction}s for a single {@link Fixture} are spread across the
+ * possible scorelines: the number of players who predicted each scoreline, most popular
+ * first, and the number who predicted a home win, a draw or an away win. Predictions
+ * without a complete scoreline aren't counted.
+ * <p>
+ * The home win, draw and away win percentages are rounded cumulatively, so that they always
+ * add up to exactly 100 and can be used as the widths of the parts of a bar.
+ */
+public class ScorelineDistribution {
+	private final int numberOfPredictions;
+
+	private final int homeWins;
+
+	private final int draws;
+
+	private final int awayWins;
+
+	private final List<ScorelineCount> scorelines;
+
+	/**
+	 * Constructor. Counts the scorelines of the given predictions.
+	 *
+	 * @param predictions the predictions made for a fixture
+	 */
+	public ScorelineDistribution(Collection<? extends Prediction> predictions) {
+		Map<MatchResult, Integer> counts = new HashMap<>();
+		int homeWinCount = 0;
+		int drawCount = 0;
+		int awayWinCount = 0;
+
+		for (Prediction prediction : predictions) {
+			MatchResult predictedResult = prediction.getPredictedResult();
+
+			if (predictedResult == null || !predictedResult.isComplete()) {
+				continue;
+			}
+
+			// Take a copy, so that the count can't be changed by changing the prediction.
+			MatchResult scoreline = new MatchResult(predictedResult.getHomeScore(), predictedResult.getAwayScore());
+			Integer count = counts.get(scoreline);
+
+			counts.put(scoreline, count == null ? 1 : count + 1);
+
+			int difference = scoreline.getHomeScore() - scoreline.getAwayScore();
+
+			if (difference > 0) {
+				homeWinCount++;
+			} else if (difference == 0) {
+				drawCount++;
+			} else {
+				awayWinCount++;
+			}
+		}
+
+		this.homeWins = homeWinCount;
+		this.draws = drawCount;
+		this.awayWins = awayWinCount;
+		this.numberOfPredictions = homeWinCount + drawCount + awayWinCount;
+
+		List<ScorelineCount> scorelineCounts = new ArrayList<>(counts.size());
+
+		for (Map.Entry<MatchResult, Integer> entry : counts.entrySet()) {
+			scorelineCounts.add(new ScorelineCount(entry.getKey(), entry.getValue(),
+												   getPercentage(entry.getValue(), numberOfPredictions)));
+		}
+
+		Collections.sort(scorelineCounts, new Comparator<ScorelineCount>() {
+			@Override
+			public int compare(ScorelineCount count1, ScorelineCount count2) {
+				if (count1.count != count2.count) {
+					return count2.count - count1.count;
+				}
+
+				if (!count1.scoreline.getHomeScore().equals(count2.scoreline.getHomeScore())) {
+					return count1.scoreline.getHomeScore() - count2.scoreline.getHomeScore();
+				}
+
+				return count1.scoreline.getAwayScore() - count2.scoreline.getAwayScore();
+			}
+		});
+
+		this.scorelines = Collections.unmodifiableList(scorelineCounts);
+	}
+
+	/**
+	 * Get the number of predictions that were counted.
+	 *
+	 * @return the number of predictions with a complete scoreline
+	 */
+	public int getNumberOfPredictions() {
+		return numberOfPredictions;
+	}
+
+	/**
+	 * Get the number of predictions of a home win.
+	 *
+	 * @return the number of home wins predicted
+	 */
+	public int getHomeWins() {
+		return homeWins;
+	}
+
+	/**
+	 * Get the number of predictions of a draw.
+	 *
+	 * @return the number of draws predicted
+	 */
+	public int getDraws() {
+		return draws;
+	}
+
+	/**
+	 * Get the number of predictions of an away win.
+	 *
+	 * @return the number of away wins predicted
+	 */
+	public int getAwayWins() {
+		return awayWins;
+	}
+
+	/**
+	 * Get the percentage of predictions that were of a home win.
+	 *
+	 * @return the percentage, rounded to the nearest whole number
+	 */
+	public int getHomeWinPercentage() {
+		return getPercentage(homeWins, numberOfPredictions);
+	}
+
+	/**
+	 * Get the percentage of predictions that were of a draw.
+	 *
+	 * @return the percentage, within one of the exact percentage
+	 */
+	public int getDrawPercentage() {
+		return getPercentage(homeWins + draws, numberOfPredictions) - getHomeWinPercentage();
+	}
+
+	/**
+	 * Get the percentage of predictions that were of an away win.
+	 *
+	 * @return the percentage, within one of the exact percentage
+	 */
+	public int getAwayWinPercentage() {
+		return numberOfPredictions == 0 ? 0 : 100 - getPercentage(homeWins + draws, numberOfPredictions);
+	}
+
+	/**
+	 * Get the number of players who predicted each scoreline, with the most popular first.
+	 * Scorelines that nobody predicted aren't included.
+	 *
+	 * @return the counts of each predicted scoreline
+	 */
+	public List<ScorelineCount> getScorelines() {
+		return scorelines;
+	}
+
+	/**
+	 * Work out what percentage one number is of another.
+	 *
+	 * @param count the number
+	 * @param total the number it's a percentage of
+	 * @return the percentage, rounded to the nearest whole number, or 0 if the total is 0
+	 */
+	private static int getPercentage(int count, int total) {
+		return total == 0 ? 0 : (int) Math.round(count * 100.0 / total);
+	}
+
+	/**
+	 * The number of players who predicted a single scoreline.
+	 */
+	public static class ScorelineCount {
+		private final MatchResult scoreline;
+
+		private final int count;
+
+		private final int percentage;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param scoreline the predicted scoreline
+		 * @param count the number of players who predicted it
+		 * @param percentage the percentage of all the predictions that were for it
+		 */
+		ScorelineCount(MatchResult scoreline, int count, int percentage) {
+			this.scoreline = scoreline;
+			this.count = count;
+			this.percentage = percentage;
+		}
+
+		/**
+		 * Get the predicted scoreline.
+		 *
+		 * @return the scoreline
+		 */
+		public MatchResult getScoreline() {
+			return new MatchResult(scoreline.getHomeScore(), scoreline.getAwayScore());
+		}
+
+		/**
+		 * Get the number of players who predicted the scoreline.
+		 *
+		 * @return the number of predictions
+		 */
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * Get the percentage of all the predictions that were for the scoreline.
+		 *
+		 * @return the percentage, rounded to the nearest whole number
+		 */
+		public int getPercentage() {
+			return percentage;
+		}
+	}
+}
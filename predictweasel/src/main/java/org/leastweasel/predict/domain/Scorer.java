@@ -8,6 +8,10 @@ package org.leastweasel.predict.domain;
  * An interface for classes that calculate the points scored for {@link Fixture}
  * predictions. It must be able to return a points score given a predicted
  * and actual score.
+ * <p>
+ * There are two ways of asking: with {@link MatchResult}s, or with the four goal
+ * counts as primitives. The second is what's used when scoring in bulk, as it
+ * doesn't need any objects to be created or unboxed.
  */
 public interface Scorer {
     /**
@@ -19,4 +23,17 @@ public interface Scorer {
      */
     public int getPointsScored (MatchResult predictedScore,
                                 MatchResult actualScore);
+
+    /**
+     * Get the points scored by the given prediction, where both the prediction and
+     * the actual score are complete.
+     * 
+     * @param predictedHomeScore the predicted number of goals for the home team
+     * @param predictedAwayScore the predicted number of goals for the away team
+     * @param actualHomeScore the actual number of goals for the home team
+     * @param actualAwayScore the actual number of goals for the away team
+     * @return the number of points the prediction is worth
+     */
+    public int getPointsScored (int predictedHomeScore, int predictedAwayScore,
+                                int actualHomeScore, int actualAwayScore);
 }
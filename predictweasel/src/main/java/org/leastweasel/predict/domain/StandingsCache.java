@@ -4,44 +4,66 @@
  */
 package org.leastweasel.predict.domain;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A cache of {@link PlayerStanding}s.
+ * A cache of {@link PlayerStanding}s. The cache is read on every request to a league's pages
+ * while results are being entered, so it holds an immutable {@link LeagueStandings} snapshot
+ * per league, keyed on league ID. A recalculation builds a complete new snapshot and swaps it
+ * in with a single write, so readers never block and never see a half-updated set of tables.
  */
 public class StandingsCache {
-	private Map<League, Map<String, List<PlayerStanding>>> leagueStandings =
-			new HashMap<League, Map<String,List<PlayerStanding>>>();
+	private final ConcurrentMap<Long, LeagueStandings> leagueStandings = new ConcurrentHashMap<>();
+
+	private volatile boolean warm;
 
 	private static final Logger logger = LoggerFactory.getLogger(StandingsCache.class);
 	
 	/**
-	 * Add the given list of player standings to the cache, replacing any that are
-	 * already there.
+	 * Add the given standings to the cache, replacing any that are already there for the
+	 * same league.
 	 * 
-	 * @param league the league for which the standing apply
-	 * @param prizeCode the specific prize code for which they apply
-	 * @param standings the new standings
+	 * @param standings the new standings for all of a league's prizes
 	 */
-	public void addStandingsForLeagueAndPrize(League league, String prizeCode, List<PlayerStanding> standings) {
-		Map<String, List<PlayerStanding>> standingsForLeague = leagueStandings.get(league);
-	
+	public void putStandings(LeagueStandings standings) {
 		if (logger.isDebugEnabled()) {
-			logger.debug("Adding {} standings for league ID: {} and prize code: {}", 
-						 standings.size(), league.getId(), prizeCode);
+			logger.debug("Replacing standings for league ID: {}", standings.getLeagueId());
 		}
-		if (standingsForLeague == null) {
-			standingsForLeague = new HashMap<String, List<PlayerStanding>>();
-			leagueStandings.put(league, standingsForLeague);
+		
+		leagueStandings.put(standings.getLeagueId(), standings);
+	}
+	
+	/**
+	 * Replace the standings for a league, but only if they're still the given snapshot. This
+	 * lets a snapshot be derived from the current one without losing changes made in the
+	 * meantime: if it's been replaced, derive the new one again from its replacement.
+	 * 
+	 * @param currentStandings the snapshot the new standings were derived from
+	 * @param newStandings the new standings for all of the league's prizes
+	 * @return true if the standings were replaced, false if the snapshot had already changed
+	 */
+	public boolean replaceStandings(LeagueStandings currentStandings, LeagueStandings newStandings) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Updating standings for league ID: {}", newStandings.getLeagueId());
 		}
 		
-		standingsForLeague.put(prizeCode, standings);
+		return leagueStandings.replace(newStandings.getLeagueId(), currentStandings, newStandings);
+	}
+	
+	/**
+	 * Get the current standings snapshot for the given league.
+	 * 
+	 * @param league the league for which the standings apply
+	 * @return the league's standings, or null if none have been calculated yet
+	 */
+	public LeagueStandings getStandings(League league) {
+		return leagueStandings.get(league.getId());
 	}
 	
 	/**
@@ -49,24 +71,41 @@ public class StandingsCache {
 	 * 
 	 * @param league the league for which the standing apply
 	 * @param prizeCode the specific prize code for which they apply
-	 * @return the player standings
+	 * @return the player standings, or an empty list if there aren't any
 	 */
 	public List<PlayerStanding> getStandings(League league, String prizeCode) {
-		Map<String, List<PlayerStanding>> standingsForLeague = leagueStandings.get(league);
+		LeagueStandings standings = getStandings(league);
 		
-		if (standingsForLeague != null) {
-			List<PlayerStanding> standingsForPrize = standingsForLeague.get(prizeCode);
+		if (standings != null) {
+			List<PlayerStanding> standingsForPrize = standings.getStandings(prizeCode);
 			
-			if (standingsForPrize != null) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Got {} cached standings for league ID: {} and prize code: {}",
-								 standingsForPrize.size(), league.getId(), prizeCode);
-				}
-				
-				return standingsForPrize;
+			if (logger.isDebugEnabled()) {
+				logger.debug("Got {} cached standings for league ID: {} and prize code: {}",
+							 standingsForPrize.size(), league.getId(), prizeCode);
 			}
+			
+			return standingsForPrize;
 		}
 		
-		return new ArrayList<>();
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Has the cache been filled with the standings of every active league. Until it has,
+	 * some leagues may show empty standings.
+	 * 
+	 * @return true if the cache has been warmed up
+	 */
+	public boolean isWarm() {
+		return warm;
+	}
+
+	/**
+	 * Set whether the cache has been filled with the standings of every active league.
+	 * 
+	 * @param warm true if the cache has been warmed up
+	 */
+	public void setWarm(boolean warm) {
+		this.warm = warm;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of each player's {@link SubscriptionSummary}s, keyed on user ID. They're needed
+ * on nearly every request, to work out which league the player is playing, but change very
+ * rarely.
+ * <p>
+ * The cache is shared between all players, rather than being held in each session, so that
+ * subscribing a player to a league can evict their entry whoever's request does it. It's
+ * bounded, throwing out the least recently used entries once full, and entries expire after
+ * a while so that changes made directly to the database are eventually picked up.
+ */
+public class SubscriptionCache {
+	private final Map<Long, Entry> userSubscriptions;
+
+	private final long expiryMillis;
+	
+	private static final Logger logger = LoggerFactory.getLogger(SubscriptionCache.class);
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maximumSize the maximum number of players whose subscriptions are held
+	 * @param expirySeconds how long each player's subscriptions are held
+	 */
+	public SubscriptionCache(final int maximumSize, int expirySeconds) {
+		this.expiryMillis = expirySeconds * 1000L;
+		this.userSubscriptions = Collections.synchronizedMap(new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+				return size() > maximumSize;
+			}
+		});
+	}
+	
+	/**
+	 * Get the summaries of the given user's subscriptions.
+	 * 
+	 * @param user the user whose subscriptions we want
+	 * @return the user's subscriptions, or null if they aren't in the cache
+	 */
+	public List<SubscriptionSummary> getSubscriptions(User user) {
+		Entry entry = userSubscriptions.get(user.getId());
+		
+		if (entry == null) {
+			return null;
+		}
+		
+		if (entry.expiryTime < System.currentTimeMillis()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Cached subscriptions for user ID: {} have expired", user.getId());
+			}
+			
+			userSubscriptions.remove(user.getId());
+			
+			return null;
+		}
+		
+		return entry.subscriptions;
+	}
+	
+	/**
+	 * Add the summaries of the given user's subscriptions to the cache, replacing any that are
+	 * already there.
+	 * 
+	 * @param user the user whose subscriptions these are
+	 * @param subscriptions the user's subscriptions
+	 */
+	public void putSubscriptions(User user, List<SubscriptionSummary> subscriptions) {
+		userSubscriptions.put(user.getId(), new Entry(subscriptions, System.currentTimeMillis() + expiryMillis));
+	}
+	
+	/**
+	 * Throw the given user's subscriptions out of the cache, probably because they've changed.
+	 * 
+	 * @param user the user whose subscriptions have changed
+	 */
+	public void evictSubscriptions(User user) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Evicting cached subscriptions for user ID: {}", user.getId());
+		}
+		
+		userSubscriptions.remove(user.getId());
+	}
+	
+	/**
+	 * Throw everyone's subscriptions out of the cache.
+	 */
+	public void clear() {
+		userSubscriptions.clear();
+	}
+	
+	/**
+	 * A single user's cached subscriptions, along with the time they should be thrown out.
+	 */
+	private static class Entry {
+		private final List<SubscriptionSummary> subscriptions;
+		
+		private final long expiryTime;
+
+		/**
+		 * Constructor. The subscriptions are copied so the entry can't be changed.
+		 * 
+		 * @param subscriptions the user's subscriptions
+		 * @param expiryTime the time, in milliseconds, after which the entry is stale
+		 */
+		Entry(List<SubscriptionSummary> subscriptions, long expiryTime) {
+			this.subscriptions = Collections.unmodifiableList(new ArrayList<>(subscriptions));
+			this.expiryTime = expiryTime;
+		}
+	}
+}
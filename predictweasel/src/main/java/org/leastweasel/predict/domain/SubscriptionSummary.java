@@ -0,0 +1,56 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.domain;
+
+/**
+ * An immutable summary of a {@link UserSubscription}, holding just enough to decide which
+ * {@link League} a player is currently playing. Unlike the entity it can safely be kept
+ * between requests, which is what the {@link SubscriptionCache} does.
+ */
+public class SubscriptionSummary {
+	private final Long subscriptionId;
+	
+	private final String leagueCode;
+	
+	private final boolean leagueOwner;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param subscription the subscription to summarise (its league must be loaded)
+	 */
+	public SubscriptionSummary(UserSubscription subscription) {
+		this.subscriptionId = subscription.getId();
+		this.leagueCode = subscription.getLeague().getCode();
+		this.leagueOwner = subscription.getLeague().getOwner().equals(subscription.getUser());
+	}
+
+	/**
+	 * Get the ID of the subscription being summarised.
+	 * 
+	 * @return the subscription's ID
+	 */
+	public Long getSubscriptionId() {
+		return subscriptionId;
+	}
+
+	/**
+	 * Get the code of the league subscribed to.
+	 * 
+	 * @return the league's code
+	 */
+	public String getLeagueCode() {
+		return leagueCode;
+	}
+
+	/**
+	 * Is the subscribed user the owner, and so the administrator, of the league.
+	 * 
+	 * @return true if the user owns the league
+	 */
+	public boolean isLeagueOwner() {
+		return leagueOwner;
+	}
+}
@@ -17,12 +17,15 @@ import javax.persistence.ManyToMany;
 import org.apache.commons.lang.builder.CompareToBuilder;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.NotBlank;
 
 /**
  * A team competing in a {@link Competition}. Teams play {@link Fixture}s against each other.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Team implements Serializable, Comparable<Team> {
 
 	private static final long serialVersionUID = 1L;
@@ -18,6 +18,8 @@ import javax.persistence.Transient;
 
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.NotBlank;
 
 /**
@@ -32,6 +34,7 @@ import org.hibernate.validator.constraints.NotBlank;
  * eligible for any competitions aimed at the parent category.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class TeamCategory implements Serializable {
 
 	private static final long serialVersionUID = 1L;
@@ -120,6 +120,29 @@ public class UserSubscription implements Serializable {
 		}
 	}
 	
+	/**
+	 * Set the number of points scored in the prize with the given index.
+	 * The counterpart of {@link #getPrizePoints(int)}.
+	 * 
+	 * @param prizeNumber the index number of the prize whose points we're setting
+	 * @param points the number of points scored for that prize
+	 */
+	public void setPrizePoints(int prizeNumber, int points) {
+		switch(prizeNumber) {
+		case 1:
+			setPrizeOnePoints(points);
+			break;
+		case 2:
+			setPrizeTwoPoints(points);
+			break;
+		case 3:
+			setPrizeThreePoints(points);
+			break;
+		default:
+			throw new IllegalArgumentException("Prize number index out of range(1-3): " + prizeNumber);
+		}
+	}
+	
 	/**
      * Comparison operator.
      * 
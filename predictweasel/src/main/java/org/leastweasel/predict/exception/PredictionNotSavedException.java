@@ -0,0 +1,19 @@
+package org.leastweasel.predict.exception;
+
+import org.leastweasel.predict.domain.Prediction;
+
+/**
+ * A {@link RuntimeException} indicating that changes to some {@link Prediction}s could
+ * neither be saved nor safely kept to be saved later, so the user mustn't be told that
+ * they've been saved.
+ */
+public class PredictionNotSavedException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructor.
+	 */
+	public PredictionNotSavedException() {
+		super("Unable to save the predictions");
+	}
+}
@@ -6,10 +6,13 @@ package org.leastweasel.predict.repository;
 
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
 import org.joda.time.DateTime;
 import org.leastweasel.predict.domain.Competition;
 import org.leastweasel.predict.domain.Fixture;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
 /**
@@ -17,6 +20,24 @@ import org.springframework.data.repository.CrudRepository;
  * {@link Fixture} objects.
  */
 public interface FixtureRepository extends CrudRepository<Fixture, Long> {
+    /**
+     * The region of the second level cache holding the results of this repository's
+     * cacheable queries. Only queries whose parameters don't include the current time
+     * are cached: those that do would never be asked for with the same parameters twice.
+     */
+    String QUERY_CACHE_REGION = "fixtureQueries";
+    
+    /**
+     * Fetch all the fixtures for the given competition, whether or not they've started.
+     *
+     * @param competition the competition whose fixtures we're after
+     * @param sortOrder defines the property we want to sort by, and the order (ascending or descending)
+     * @return all of the competition's fixtures
+     */
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                  @QueryHint(name = "org.hibernate.cacheRegion", value = QUERY_CACHE_REGION) })
+    List<Fixture> findByCompetition(Competition competition, Sort sortOrder);
+
     /**
      * Fetch all the completed fixtures for the given competition.
      *
@@ -24,6 +45,8 @@ public interface FixtureRepository extends CrudRepository<Fixture, Long> {
      * @param sortOrder defines the property we want to sort by, and the order (ascending or descending)
      * @return all of the competition's completed fixtures
      */
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                  @QueryHint(name = "org.hibernate.cacheRegion", value = QUERY_CACHE_REGION) })
     List<Fixture> findByCompetitionAndResultIsNotNull(Competition competition, Sort sortOrder);
 
     /**
@@ -0,0 +1,31 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.repository;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.leastweasel.predict.domain.OutboundEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.CrudRepository;
+
+/**
+ * The data access interface for performing database operations on
+ * {@link OutboundEmail} objects.
+ */
+public interface OutboundEmailRepository extends CrudRepository<OutboundEmail, Long> {
+    /**
+     * Find the emails that haven't been sent, haven't been given up on, and are due
+     * another attempt at sending.
+     *
+     * @param maximumAttempts emails that have been tried this many times have been given up on
+     * @param now emails whose next attempt is due before this time will be returned
+     * @param page the number of emails to return, and their order
+     * @return the emails due to be sent
+     */
+    List<OutboundEmail> findBySentTimeIsNullAndAttemptsLessThanAndNextAttemptTimeBefore(int maximumAttempts,
+    																					   DateTime now,
+    																					   Pageable page);
+}
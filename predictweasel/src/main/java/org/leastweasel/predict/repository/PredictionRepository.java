@@ -4,6 +4,7 @@
  */
 package org.leastweasel.predict.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.leastweasel.predict.domain.Fixture;
@@ -26,6 +27,26 @@ public interface PredictionRepository extends CrudRepository<Prediction, Long> {
      * @return a prediction (or null if none match)
      */
     Prediction findByPredictorAndFixture(User predictor, Fixture fixture);
+
+    /**
+     * Find all the predictions made by the given {@link User} for any of the given {@link Fixture}s,
+     * in a single query. Fixtures the user hasn't predicted simply have no prediction in the list.
+     *
+     * @param predictor the user who made the predictions
+     * @param fixtures the fixtures for which we want the user's predictions (mustn't be empty)
+     * @return the user's predictions for the fixtures
+     */
+    List<Prediction> findByPredictorAndFixtureIn(User predictor, Collection<Fixture> fixtures);
+
+    /**
+     * Find all the predictions made by any of the given {@link User}s for any of the given
+     * {@link Fixture}s, in a single query.
+     *
+     * @param predictors the users who made the predictions (mustn't be empty)
+     * @param fixtures the fixtures for which we want the users' predictions (mustn't be empty)
+     * @return the users' predictions for the fixtures
+     */
+    List<Prediction> findByPredictorInAndFixtureIn(Collection<User> predictors, Collection<Fixture> fixtures);
     
     /**
      * Get the predictions made on a single fixture by the players of a given league.
@@ -36,4 +57,33 @@ public interface PredictionRepository extends CrudRepository<Prediction, Long> {
      */
 	@Query("select p from Prediction p, UserSubscription us where p.predictor = us.user and us.league = ?1 and p.fixture = ?2")
     List<Prediction> findFixturePredictionsFromLeague(League league, Fixture fixture);
+
+    /**
+     * Get the predictions made on a single fixture by the players of a given league, along
+     * with the points each has scored in the league, in a single query. Each array holds the
+     * prediction, with its predictor fetched, then the points scored for the league's first,
+     * second and third prizes, in that order. The points are null if the league doesn't have
+     * the prize, or if they haven't been recorded.
+     * 
+     * @param league the league whose players' predictions we're after
+     * @param fixture the fixture whose predictions we're after
+     * @return an array of values for each prediction made on the fixture
+     */
+	@Query("select p, " +
+		   "(select pp.pointsScored from PrizePoints pp where pp.subscription.id = us.id and pp.fixture = ?2 and pp.prizeCode = l.prizeOneCode), " +
+		   "(select pp.pointsScored from PrizePoints pp where pp.subscription.id = us.id and pp.fixture = ?2 and pp.prizeCode = l.prizeTwoCode), " +
+		   "(select pp.pointsScored from PrizePoints pp where pp.subscription.id = us.id and pp.fixture = ?2 and pp.prizeCode = l.prizeThreeCode) " +
+		   "from Prediction p join fetch p.predictor, UserSubscription us join us.league l " +
+		   "where p.predictor = us.user and l = ?1 and p.fixture = ?2")
+    List<Object[]> findScoredFixturePredictionsFromLeague(League league, Fixture fixture);
+
+    /**
+     * Get all the predictions made on any of the given fixtures, whichever league their
+     * predictors are playing in. The predictors and fixtures are fetched in the same query.
+     * 
+     * @param fixtures the fixtures whose predictions we're after (mustn't be empty)
+     * @return all the predictions made on the fixtures
+     */
+	@Query("select p from Prediction p join fetch p.predictor join fetch p.fixture where p.fixture in ?1")
+    List<Prediction> findByFixtureIn(Collection<Fixture> fixtures);
 }
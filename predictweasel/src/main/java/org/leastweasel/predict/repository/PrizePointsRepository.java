@@ -4,6 +4,10 @@
  */
 package org.leastweasel.predict.repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.leastweasel.predict.domain.Competition;
 import org.leastweasel.predict.domain.Fixture;
 import org.leastweasel.predict.domain.PrizePoints;
 import org.leastweasel.predict.domain.UserSubscription;
@@ -14,7 +18,7 @@ import org.springframework.data.repository.CrudRepository;
  * The data access interface for performing database operations on
  * {@link PrizePoints} objects.
  */
-public interface PrizePointsRepository extends CrudRepository<PrizePoints, Long> {
+public interface PrizePointsRepository extends CrudRepository<PrizePoints, Long>, PrizePointsRepositoryCustom {
 	/**
 	 * Find the instance matching the {@link UserSubscription}, {@link Fixture} and prize code. 
 	 * This is a unique combination so will return one entity or null.
@@ -38,4 +42,30 @@ public interface PrizePointsRepository extends CrudRepository<PrizePoints, Long>
 	 */
 	@Query("select sum(pp.pointsScored) from PrizePoints pp where pp.subscription = ?1 and pp.prizeCode = ?2")
 	Integer getTotalSubscriptionPointsForPrize(UserSubscription subscription, String prizeCode);
+
+	/**
+	 * Get a summary of every instance recorded against any of the given {@link Fixture}s, across
+	 * all leagues and prizes. Rather than loading full entities we just fetch the columns
+	 * needed to decide whether a row needs inserting or updating: the ID, the subscription ID,
+	 * the prize code, the number of points scored and the fixture ID, in that order.
+	 * 
+	 * @param fixtures the fixtures whose points we're after (mustn't be empty)
+	 * @return an array of values for each matching instance
+	 */
+	@Query("select pp.id, pp.subscription.id, pp.prizeCode, pp.pointsScored, pp.fixture.id from PrizePoints pp " +
+		   "where pp.fixture in ?1")
+	List<Object[]> findPointsSummariesForFixtures(Collection<Fixture> fixtures);
+
+	/**
+	 * Get the total number of points scored in every prize of every subscription to the
+	 * leagues based on the given {@link Competition}, in a single grouped query. Each
+	 * array holds the subscription ID, the prize code and the total number of points
+	 * scored, in that order. Combinations with no points recorded are simply absent.
+	 * 
+	 * @param competition the competition whose leagues we want totals for (won't be null)
+	 * @return an array of values for each subscription and prize with points recorded
+	 */
+	@Query("select pp.subscription.id, pp.prizeCode, sum(pp.pointsScored) from PrizePoints pp " +
+		   "where pp.subscription.league.competition = ?1 group by pp.subscription.id, pp.prizeCode")
+	List<Object[]> getTotalPointsForCompetition(Competition competition);
 }
@@ -0,0 +1,28 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.repository;
+
+import java.util.List;
+
+import org.leastweasel.predict.domain.PrizePoints;
+
+/**
+ * Data access methods for {@link PrizePoints} objects that can't be generated by Spring Data
+ * and so are implemented by hand in {@link PrizePointsRepositoryImpl}.
+ */
+public interface PrizePointsRepositoryCustom {
+	/**
+	 * Write the given points to the database using JDBC batches rather than saving each entity
+	 * in turn. Instances with an ID are assumed to exist already, so are updated; those without
+	 * one are inserted.
+	 * <p>
+	 * The instances are not attached to the persistence context, and inserted ones will not have
+	 * their IDs set, so they shouldn't be used once written.
+	 * 
+	 * @param points the points to write (each must have its subscription and fixture set)
+	 * @return the number of rows written
+	 */
+	int saveInBatches(List<PrizePoints> points);
+}
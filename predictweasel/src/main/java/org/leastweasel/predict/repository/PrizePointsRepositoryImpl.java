@@ -0,0 +1,84 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.leastweasel.predict.domain.PrizePoints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+/**
+ * The hand-written part of the {@link PrizePointsRepository}. Spring Data finds this class by
+ * its name and mixes its methods into the generated repository.
+ */
+public class PrizePointsRepositoryImpl implements PrizePointsRepositoryCustom {
+	private static final String INSERT_SQL =
+			"insert into prize_points (subscription_id, fixture_id, prize_code, points_scored) values (?, ?, ?, ?)";
+
+	private static final String UPDATE_SQL =
+			"update prize_points set points_scored = ? where id = ?";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	@Value("${predictWeasel.jdbcBatchSize}")
+	private int batchSize;
+	
+	private static final Logger logger = LoggerFactory.getLogger(PrizePointsRepositoryImpl.class);
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int saveInBatches(List<PrizePoints> points) {
+		List<PrizePoints> inserts = new ArrayList<>();
+		List<PrizePoints> updates = new ArrayList<>();
+		
+		for (PrizePoints prizePoints : points) {
+			if (prizePoints.getId() == null) {
+				inserts.add(prizePoints);
+			} else {
+				updates.add(prizePoints);
+			}
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Writing {} new and {} updated prize points in batches of {}",
+						 inserts.size(), updates.size(), batchSize);
+		}
+		
+		if (!inserts.isEmpty()) {
+			jdbcTemplate.batchUpdate(INSERT_SQL, inserts, batchSize, new ParameterizedPreparedStatementSetter<PrizePoints>() {
+				@Override
+				public void setValues(PreparedStatement ps, PrizePoints prizePoints) throws SQLException {
+					ps.setLong(1, prizePoints.getSubscription().getId());
+					ps.setLong(2, prizePoints.getFixture().getId());
+					ps.setString(3, prizePoints.getPrizeCode());
+					ps.setInt(4, prizePoints.getPointsScored());
+				}
+			});
+		}
+		
+		if (!updates.isEmpty()) {
+			jdbcTemplate.batchUpdate(UPDATE_SQL, updates, batchSize, new ParameterizedPreparedStatementSetter<PrizePoints>() {
+				@Override
+				public void setValues(PreparedStatement ps, PrizePoints prizePoints) throws SQLException {
+					ps.setInt(1, prizePoints.getPointsScored());
+					ps.setLong(2, prizePoints.getId());
+				}
+			});
+		}
+		
+		return inserts.size() + updates.size();
+	}
+}
@@ -6,9 +6,11 @@ package org.leastweasel.predict.repository;
 
 import java.util.List;
 
+import org.leastweasel.predict.domain.Competition;
 import org.leastweasel.predict.domain.League;
 import org.leastweasel.predict.domain.User;
 import org.leastweasel.predict.domain.UserSubscription;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 /**
@@ -33,6 +35,17 @@ public interface UserSubscriptionRepository extends CrudRepository<UserSubscript
      */
     UserSubscription findByUserAndLeague(User user, League league);
 
+    /**
+     * Fetch the {@link User}'s subscription to the {@link League} with the given code. The
+     * league is fetched in the same query.
+     *
+     * @param user the user whose subscription we're after
+     * @param leagueCode the specific subscription we want is for the league with this code
+     * @return the user's subscription, or null if one doesn't exist
+     */
+    @Query("select us from UserSubscription us join fetch us.league l where us.user = ?1 and l.code = ?2")
+    UserSubscription findByUserAndLeagueCode(User user, String leagueCode);
+
     /**
      * Fetch all the subscriptions to the given {@link League}.
      *
@@ -40,4 +53,15 @@ public interface UserSubscriptionRepository extends CrudRepository<UserSubscript
      * @return a list of user subscriptions, or null if one doesn't exist
      */
     List<UserSubscription> findByLeague(League league);
+
+    /**
+     * Fetch all the subscriptions to all the {@link League}s based on the given {@link Competition}.
+     * The subscribed users and leagues are fetched in the same query so that iterating over
+     * the subscriptions doesn't cost a query per subscription.
+     *
+     * @param competition the subscriptions we want are for this competition's leagues
+     * @return a list of user subscriptions
+     */
+    @Query("select us from UserSubscription us join fetch us.user join fetch us.league l where l.competition = ?1")
+    List<UserSubscription> findByCompetition(Competition competition);
 }
@@ -36,7 +36,8 @@ public interface CompetitionService {
 	List<Fixture> getStartedFixturesWithNoResult(Competition competition);
 	
 	/**
-	 * Update the result of the given fixture.
+	 * Update the result of the given fixture, scoring its predictions and refreshing
+	 * the points totals and standings of the competition's leagues.
 	 * 
 	 * @param fixture the fixture to update
 	 * @param result the fixture's result
@@ -18,6 +18,11 @@ public interface LeagueService {
 	 * Recalculate the points totals of all subscriptions for all leagues based on the 
 	 * given Competition, probably because we have recently entered results for this
 	 * competition's fixtures.
+	 * <p>
+	 * The cached standings of each league are brought up to date once the new totals have
+	 * been committed, by moving only the players whose totals have changed. A league's
+	 * standings are recalculated from scratch if they aren't in the cache or no longer include
+	 * all its players.
 	 * 
 	 * @param competition all leagues for this competition should have their
 	 * 		  subscription points totals recalculated
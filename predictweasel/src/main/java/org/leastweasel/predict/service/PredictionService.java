@@ -5,13 +5,17 @@
 package org.leastweasel.predict.service;
 
 import java.util.List;
+import java.util.Map;
 
+import org.leastweasel.predict.domain.Competition;
 import org.leastweasel.predict.domain.Fixture;
+import org.leastweasel.predict.domain.FixturePredictions;
 import org.leastweasel.predict.domain.League;
 import org.leastweasel.predict.domain.MatchResult;
 import org.leastweasel.predict.domain.Prediction;
 import org.leastweasel.predict.domain.User;
 import org.leastweasel.predict.domain.UserSubscription;
+import org.leastweasel.predict.exception.PredictionNotSavedException;
 
 /**
  * {@link Prediction}-related methods.
@@ -85,6 +89,19 @@ public interface PredictionService {
 	 */
 	List<Prediction> getPredictionsInLeagueForFixture(League league, Fixture fixture);
 	
+	/**
+	 * Get the predictions that have been made (if any) by players in a given league, for the given
+	 * fixture, along with the points each has scored for the league's prizes and the spread of
+	 * scorelines they predicted. They're fetched in a single query, however many players the
+	 * league has, and sorted with the highest score for the first prize first. Once the fixture
+	 * has kicked off the predictions are cached until its result changes.
+	 * 
+	 * @param league only predictions from this league are considered
+	 * @param fixture the fixture whose predictions we're after
+	 * @return the predictions for the fixture, with the points scored for each of the league's prizes
+	 */
+	FixturePredictions getScoredPredictionsInLeagueForFixture(League league, Fixture fixture);
+	
 	/**
 	 * Either create, or update, a prediction by a user for the given fixture. If no
 	 * prediction yet exists for the user then a new one is created. If one does
@@ -94,15 +111,43 @@ public interface PredictionService {
 	 * @param fixture the fixture for which the user is making a prediction
 	 * @param predictedResult the predicted result of the fixture
 	 * @return the affected prediction
+	 * @throws PredictionNotSavedException if the prediction couldn't be saved
 	 */
 	Prediction createOrUpdatePrediction(UserSubscription subscription,
 									   Fixture fixture,
 									   MatchResult predictedResult);
 	
+	/**
+	 * Create, update or delete a user's predictions for several fixtures at once, in a single
+	 * transaction. The user's existing predictions for all the fixtures are fetched together,
+	 * rather than one at a time. It's up to the caller to check that the fixtures haven't
+	 * started yet.
+	 * 
+	 * @param subscription identifies the user whose predictions these are
+	 * @param predictedResults the predicted result of each fixture; a null result deletes any
+	 * 		  existing prediction for the fixture
+	 * @return the predictions that were created or updated
+	 * @throws PredictionNotSavedException if the predictions couldn't be saved, in which case
+	 * 		   none of them has been
+	 */
+	List<Prediction> createOrUpdatePredictions(UserSubscription subscription,
+											   Map<Fixture, MatchResult> predictedResults);
+	
 	/**
 	 * Calculate the points scored for each prediction based on the given fixture.
 	 * 
 	 * @param fixture the fixture whose predictions we're going to evaluate
 	 */
 	void calculatePredictionScoresForFixture(Fixture fixture);
+	
+	/**
+	 * Calculate the points scored for each prediction based on any of the given fixtures,
+	 * all of which must belong to the same {@link Competition}. This is how a whole
+	 * competition is rescored, a chunk of fixtures at a time.
+	 * 
+	 * @param competition the competition the fixtures belong to
+	 * @param fixtures the fixtures whose predictions we're going to evaluate
+	 * @return the number of prize points calculated
+	 */
+	int calculatePredictionScoresForFixtures(Competition competition, List<Fixture> fixtures);
 }
@@ -0,0 +1,32 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.service;
+
+import org.leastweasel.predict.domain.Competition;
+import org.leastweasel.predict.domain.PrizePoints;
+import org.leastweasel.predict.domain.RescoringProgress;
+
+/**
+ * An interface for rescoring a whole {@link Competition}, for example after a fix to the
+ * scoring rules. Every {@link PrizePoints} row for the competition's results is recalculated,
+ * followed by the points totals and standings of its leagues.
+ */
+public interface RescoringService {
+	/**
+	 * Start rescoring the given competition in the background. Only one competition can be
+	 * rescored at a time.
+	 *
+	 * @param competition the competition to rescore
+	 * @return true if rescoring has started, false if another competition is still being rescored
+	 */
+	boolean startRescoring(Competition competition);
+
+	/**
+	 * Get the progress of the most recent rescoring job, whether it's still going or not.
+	 *
+	 * @return the job's progress, or null if nothing has been rescored since the application started
+	 */
+	RescoringProgress getProgress();
+}
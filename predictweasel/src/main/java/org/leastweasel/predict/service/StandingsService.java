@@ -8,6 +8,8 @@ import java.util.List;
 
 import org.leastweasel.predict.domain.UserSubscription;
 import org.leastweasel.predict.web.controller.PersonalisedPlayerStanding;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 /**
  * An interface for dealing with player standings.
@@ -25,6 +27,17 @@ public interface StandingsService {
 	 */
 	List<PersonalisedPlayerStanding> getAbbreviatedPrizeStandings(UserSubscription subscription, int prizeNumber);
 	
+	/**
+	 * Get the top few standings for a league and prize, none of them highlighted, so that
+	 * they're the same for every player in the league. There are as many as there would be
+	 * in the abbreviated standings of a player who's among them.
+	 * 
+	 * @param subscription defines the league being played
+	 * @param prizeNumber the index of the prize these standings are for(1, 2, 3)
+	 * @return the top player standings for the league and prize
+	 */
+	List<PersonalisedPlayerStanding> getTopPrizeStandings(UserSubscription subscription, int prizeNumber);
+	
 	/**
 	 * Get the full standings for a league and prize.
 	 * 
@@ -33,4 +46,38 @@ public interface StandingsService {
 	 * @return the player standings for the league and prize
 	 */
 	List<PersonalisedPlayerStanding> getFullPrizeStandings(UserSubscription subscription, int prizeNumber);
+	
+	/**
+	 * Get a single page of the standings for a league and prize. Only the standings on the
+	 * page are personalised, so this takes the same time however big the league is.
+	 * 
+	 * @param subscription defines the player and the league being played
+	 * @param prizeNumber the index of the prize these standings are for(1, 2, 3)
+	 * @param pageable the page number, counting from 0, and the number of standings per page
+	 * @return the page of standings; if the page number is beyond the end of the standings
+	 * 		   the last page is returned instead
+	 */
+	Page<PersonalisedPlayerStanding> getPrizeStandingsPage(UserSubscription subscription, int prizeNumber,
+														   Pageable pageable);
+	
+	/**
+	 * Get the number of the page of a prize's standings that shows the player's own standing,
+	 * so that they can jump straight to it.
+	 * 
+	 * @param subscription defines the player and the league being played
+	 * @param prizeNumber the index of the prize these standings are for(1, 2, 3)
+	 * @param pageSize the number of standings per page
+	 * @return the page number, counting from 0, or -1 if the player isn't in the standings
+	 */
+	int getPlayerPageNumber(UserSubscription subscription, int prizeNumber, int pageSize);
+	
+	/**
+	 * Get the version of the cached standings of a league. The version changes whenever the
+	 * standings are recalculated, which includes whenever a result is saved, so it can be used
+	 * to tell whether a league's standings or results might have changed.
+	 * 
+	 * @param subscription defines the league being played
+	 * @return the version of the league's standings, or null if they haven't been calculated yet
+	 */
+	Long getStandingsVersion(UserSubscription subscription);
 }
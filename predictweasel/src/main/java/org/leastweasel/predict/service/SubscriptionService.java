@@ -7,6 +7,7 @@ package org.leastweasel.predict.service;
 import java.util.List;
 
 import org.leastweasel.predict.domain.League;
+import org.leastweasel.predict.domain.SubscriptionSummary;
 import org.leastweasel.predict.domain.User;
 import org.leastweasel.predict.domain.UserSubscription;
 
@@ -22,6 +23,16 @@ public interface SubscriptionService {
 	 */
 	List<UserSubscription> getSubscriptions(User user);
 	
+	/**
+	 * Get a summary of all the subscriptions for the given user. These are cached between
+	 * requests, so this will only go to the database the first time it's called for a user,
+	 * or when the user's subscriptions have changed. Never returns null.
+	 * 
+	 * @param user the user whose subscriptions we're after
+	 * @return summaries of the user's subscriptions, or an empty list if there are none
+	 */
+	List<SubscriptionSummary> getSubscriptionSummaries(User user);
+	
 	/**
 	 * Get all the subscription for the currently logged in user. Never returns null.
 	 * 
@@ -55,7 +66,8 @@ public interface SubscriptionService {
 	UserSubscription getSubscriptionFromLeagueCode(String leagueCode);
 
 	/**
-	 * Create a subscription for the given user to the league.
+	 * Create a subscription for the given user to the league. The user's cached subscription
+	 * summaries are thrown away.
 	 * 
 	 * @param league the league the user is to subscribe to
 	 * @param user the user who is subscribing to the league
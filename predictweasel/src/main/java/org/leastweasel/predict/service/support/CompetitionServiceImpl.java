@@ -8,12 +8,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.leastweasel.predict.domain.Competition;
+import org.leastweasel.predict.domain.FixedPredictionsCache;
 import org.leastweasel.predict.domain.Fixture;
+import org.leastweasel.predict.domain.FixturePredictionsCache;
 import org.leastweasel.predict.domain.MatchResult;
 import org.leastweasel.predict.repository.CompetitionRepository;
 import org.leastweasel.predict.repository.FixtureRepository;
 import org.leastweasel.predict.service.Clock;
 import org.leastweasel.predict.service.CompetitionService;
+import org.leastweasel.predict.service.LeagueService;
 import org.leastweasel.predict.service.PredictionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,9 +39,21 @@ public class CompetitionServiceImpl implements CompetitionService {
 	@Autowired
 	private PredictionService predictionService;
 	
+	@Autowired
+	private LeagueService leagueService;
+	
 	@Autowired
 	private Clock systemClock;
 	
+	@Autowired
+	private SecondLevelCache secondLevelCache;
+	
+	@Autowired
+	private FixturePredictionsCache fixturePredictionsCache;
+	
+	@Autowired
+	private FixedPredictionsCache fixedPredictionsCache;
+	
 	private static final Logger logger = LoggerFactory.getLogger(CompetitionServiceImpl.class);
 
 	/**
@@ -90,10 +105,24 @@ public class CompetitionServiceImpl implements CompetitionService {
 	
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * Once the predictions have been scored we bring the points totals of the competition's
+	 * leagues up to date, which moves the players whose totals have changed to their new places
+	 * in the cached standings, so that players see the new tables straight away.
+	 * The fixture, and any cached queries it might appear in, are evicted from the second
+	 * level cache as soon as the result has been saved, and the fixture's cached predictions
+	 * as soon as the points they show have been recalculated. The players' cached fixed
+	 * predictions are just updated with the new result.
 	 */
 	public void saveResult(Fixture fixture, MatchResult result) {
 		fixture.setResult(result);
 		fixtureRepository.save(fixture);
+		secondLevelCache.evictFixture(fixture);
+		fixedPredictionsCache.updateResult(fixture);
+		
 		predictionService.calculatePredictionScoresForFixture(fixture);
+		fixturePredictionsCache.evictFixture(fixture);
+		
+		leagueService.recalculateCompetitionLeaguePointsTotals(fixture.getCompetition());
 	}
 }
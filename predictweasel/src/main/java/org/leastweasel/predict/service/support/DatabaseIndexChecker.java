@@ -0,0 +1,209 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.service.support;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks, when the application starts, that the database has the indexes our hottest lookups
+ * rely on (see {@code database/updates/003_add_lookup_indexes.sql}). Without them those lookups
+ * still work, just a lot more slowly, so a missing index is logged as a warning rather than
+ * stopping the application.
+ */
+@Component
+public class DatabaseIndexChecker implements ApplicationListener<ContextRefreshedEvent> {
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final AtomicBoolean checked = new AtomicBoolean();
+
+	private final List<RequiredIndex> requiredIndexes = Arrays.asList(
+			new RequiredIndex("prediction", true, "user_id", "fixture_id"),
+			new RequiredIndex("prize_points", true, "subscription_id", "fixture_id", "prize_code"),
+			new RequiredIndex("fixture", false, "competition_id", "match_time"));
+
+	private static final Logger logger = LoggerFactory.getLogger(DatabaseIndexChecker.class);
+
+	/**
+	 * Check the indexes once the application context has been refreshed. We only ever do this
+	 * once, however many times the context (or a child of it) is refreshed.
+	 *
+	 * @param event the event signalling that the context has been refreshed
+	 */
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		if (!checked.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			jdbcTemplate.execute(new ConnectionCallback<Void>() {
+				@Override
+				public Void doInConnection(Connection connection) throws SQLException {
+					checkIndexes(connection.getMetaData());
+
+					return null;
+				}
+			});
+		} catch (DataAccessException e) {
+			logger.warn("Unable to check the database's indexes", e);
+		}
+	}
+
+	/**
+	 * Check that each of the required indexes is present, logging a warning for any that aren't.
+	 *
+	 * @param metaData a description of the database
+	 * @throws SQLException if the database's indexes can't be read
+	 */
+	private void checkIndexes(DatabaseMetaData metaData) throws SQLException {
+		int numberMissing = 0;
+
+		for (RequiredIndex requiredIndex : requiredIndexes) {
+			if (requiredIndex.isPresent(getIndexes(metaData, requiredIndex.tableName))) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Found required index {}", requiredIndex);
+				}
+			} else {
+				logger.warn("Missing index {}: lookups will be slow until database/updates/003_add_lookup_indexes.sql " +
+							"has been applied", requiredIndex);
+
+				numberMissing++;
+			}
+		}
+
+		if (numberMissing == 0) {
+			logger.info("All {} required database indexes are present", requiredIndexes.size());
+		}
+	}
+
+	/**
+	 * Get the indexes on the given table.
+	 *
+	 * @param metaData a description of the database
+	 * @param tableName the name of the table whose indexes we want
+	 * @return the indexes on the table, keyed on index name
+	 * @throws SQLException if the database's indexes can't be read
+	 */
+	private Map<String, TableIndex> getIndexes(DatabaseMetaData metaData, String tableName) throws SQLException {
+		Map<String, TableIndex> indexes = new HashMap<>();
+
+		if (metaData.storesUpperCaseIdentifiers()) {
+			tableName = tableName.toUpperCase();
+		}
+
+		try (ResultSet rows = metaData.getIndexInfo(null, null, tableName, false, true)) {
+			while (rows.next()) {
+				String indexName = rows.getString("INDEX_NAME");
+				String columnName = rows.getString("COLUMN_NAME");
+
+				// Skip table statistics, which are reported as if they were an index.
+				if (indexName == null || columnName == null) {
+					continue;
+				}
+
+				TableIndex index = indexes.get(indexName);
+
+				if (index == null) {
+					index = new TableIndex(!rows.getBoolean("NON_UNIQUE"));
+					indexes.put(indexName, index);
+				}
+
+				index.columns.put(rows.getInt("ORDINAL_POSITION"), columnName.toLowerCase());
+			}
+		}
+
+		return indexes;
+	}
+
+	/**
+	 * An index as it's found in the database.
+	 */
+	private static class TableIndex {
+		private final boolean unique;
+
+		private final Map<Integer, String> columns = new TreeMap<>();
+
+		/**
+		 * Constructor.
+		 *
+		 * @param unique is this a unique index
+		 */
+		TableIndex(boolean unique) {
+			this.unique = unique;
+		}
+	}
+
+	/**
+	 * An index that our lookups need. We don't care what it's called, just that there's an
+	 * index on the right columns, in the right order.
+	 */
+	private static class RequiredIndex {
+		private final String tableName;
+
+		private final boolean unique;
+
+		private final List<String> columnNames;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param tableName the table that should be indexed
+		 * @param unique should the index be unique
+		 * @param columnNames the indexed columns, in order
+		 */
+		RequiredIndex(String tableName, boolean unique, String... columnNames) {
+			this.tableName = tableName;
+			this.unique = unique;
+			this.columnNames = Arrays.asList(columnNames);
+		}
+
+		/**
+		 * Is this index among the given indexes.
+		 *
+		 * @param indexes the indexes on our table
+		 * @return true if one of them matches this
+		 */
+		boolean isPresent(Map<String, TableIndex> indexes) {
+			for (TableIndex index : indexes.values()) {
+				if ((index.unique || !unique) && new ArrayList<>(index.columns.values()).equals(columnNames)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * Describe the index, for logging.
+		 *
+		 * @return a description of the index
+		 */
+		@Override
+		public String toString() {
+			return (unique ? "unique " : "") + "on " + tableName + " " + columnNames;
+		}
+	}
+}
@@ -4,53 +4,284 @@
  */
 package org.leastweasel.predict.service.support;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.apache.commons.lang.StringUtils;
+import org.joda.time.DateTime;
 import org.leastweasel.predict.domain.EmailDetails;
+import org.leastweasel.predict.domain.OutboundEmail;
+import org.leastweasel.predict.repository.OutboundEmailRepository;
+import org.leastweasel.predict.service.Clock;
 import org.leastweasel.predict.service.EmailService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 /**
  * An implementation of {@link EmailService} using Spring's
- * {@link JavaMailSender} interface. 
+ * {@link JavaMailSender} interface.
+ * <p>
+ * Emails aren't sent while the caller waits. Each one is recorded in the outbox (the
+ * {@link OutboundEmail} table) and queued for a small pool of worker threads to send, so
+ * a slow mail server doesn't hold up the request. If the queue is full, the mail server
+ * refuses an email, or the application is restarted before an email has gone, it stays in
+ * the outbox: a regular sweep picks up any email that's due to be sent. Failed emails are
+ * retried with an exponentially increasing delay until they've been tried
+ * {@code predictWeasel.emailMaximumAttempts} times, after which we give up on them.
+ * <p>
+ * If an email can't be recorded in the outbox, for example because the database is down,
+ * it's sent straight away instead, as it would have been without an outbox.
  */
 @Service
 public class JavaMailEmailService implements EmailService {
 	@Autowired
 	private JavaMailSender sender;
 
+	@Autowired
+	private OutboundEmailRepository outboundEmailRepository;
+
+	@Autowired
+	private Clock systemClock;
+
 	@Value("${email.defaultSender}")
     private String defaultSender;
 
+	@Value("${predictWeasel.emailSenderThreads}")
+	private int numberOfThreads;
+
+	@Value("${predictWeasel.emailQueueCapacity}")
+	private int queueCapacity;
+
+	@Value("${predictWeasel.emailMaximumAttempts}")
+	private int maximumAttempts;
+
+	@Value("${predictWeasel.emailRetryDelaySeconds}")
+	private int retryDelaySeconds;
+
+	private ThreadPoolExecutor executor;
+
+	private final Set<Long> queuedEmailIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	private static final int MAXIMUM_ERROR_LENGTH = 255;
+
 	private static final Logger logger = LoggerFactory.getLogger(JavaMailEmailService.class);
-	
+
+	/**
+	 * Create the pool of threads that send the emails, and the bounded queue that feeds them.
+	 */
+	@PostConstruct
+	public void startSending() {
+		executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 0L, TimeUnit.MILLISECONDS,
+										  new ArrayBlockingQueue<Runnable>(queueCapacity),
+										  new CustomizableThreadFactory("email-sender-"));
+	}
+
+	/**
+	 * Stop sending emails. Any that haven't been sent are still in the outbox, so will be
+	 * sent when the application next starts.
+	 */
+	@PreDestroy
+	public void stopSending() {
+		executor.shutdownNow();
+	}
+
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * The email is recorded in the outbox and queued to be sent in the background. If it
+	 * can't be recorded it's sent straight away, and if that fails too it's lost.
 	 */
 	@Override
 	public void send(EmailDetails email, String recipient) {
+		OutboundEmail outboundEmail;
+
+		try {
+			outboundEmail =
+					outboundEmailRepository.save(new OutboundEmail(email, recipient, systemClock.getCurrentDateTime()));
+		} catch (DataAccessException e) {
+			logger.error("Unable to add email to '" + recipient + "' to the outbox; sending it straight away", e);
+
+			sendDirectly(email, recipient);
+
+			return;
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Added email ID: {} to '{}' to the outbox", outboundEmail.getId(), recipient);
+		}
+
+		queue(outboundEmail.getId());
+	}
+
+	/**
+	 * Send an email while the caller waits, without recording it in the outbox.
+	 *
+	 * @param email the details of the email
+	 * @param recipient the email address to send it to
+	 */
+	private void sendDirectly(EmailDetails email, String recipient) {
+		try {
+			sender.send(createMessage(email.getSubject(), email.getMessageText(), recipient));
+		} catch (MailException e) {
+			logger.error("Error sending email to '{}'", recipient);
+			logger.error("Message was: {}", email.getMessageText());
+			logger.error("Exception:", e);
+		}
+	}
+
+	/**
+	 * Queue any emails in the outbox that are due to be sent. This picks up those that have
+	 * failed and are due a retry, any that didn't fit in the queue, and any left over from
+	 * before the application was restarted.
+	 */
+	@Scheduled(initialDelayString = "${predictWeasel.emailSweepIntervalMillis}",
+			   fixedDelayString = "${predictWeasel.emailSweepIntervalMillis}")
+	public void sendDueEmails() {
+		PageRequest page = new PageRequest(0, queueCapacity, new Sort(Direction.ASC, "nextAttemptTime"));
+
+		List<OutboundEmail> dueEmails =
+				outboundEmailRepository.findBySentTimeIsNullAndAttemptsLessThanAndNextAttemptTimeBefore(maximumAttempts,
+																									   systemClock.getCurrentDateTime(),
+																									   page);
+
+		if (!dueEmails.isEmpty()) {
+			logger.info("Found {} emails in the outbox due to be sent", dueEmails.size());
+		}
+
+		for (OutboundEmail email : dueEmails) {
+			queue(email.getId());
+		}
+	}
+
+	/**
+	 * Hand an email to the worker threads to send, unless it's already waiting for them. If
+	 * the queue is full the email is left in the outbox for the next sweep.
+	 *
+	 * @param emailId the ID of the email in the outbox
+	 */
+	private void queue(final Long emailId) {
+		if (!queuedEmailIds.add(emailId)) {
+			return;
+		}
+
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						deliver(emailId);
+					} finally {
+						queuedEmailIds.remove(emailId);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			queuedEmailIds.remove(emailId);
+
+			logger.warn("Email queue is full; email ID: {} will be sent by a later sweep of the outbox", emailId);
+		}
+	}
+
+	/**
+	 * Try to send a single email from the outbox, recording whether it succeeded. If it didn't,
+	 * schedule the next attempt.
+	 *
+	 * @param emailId the ID of the email in the outbox
+	 */
+	private void deliver(Long emailId) {
+		OutboundEmail email = outboundEmailRepository.findOne(emailId);
+
+		// It's possible the email was added in a transaction that hasn't been committed yet.
+		// If so, a later sweep will find it.
+		if (email == null || email.getSentTime() != null) {
+			return;
+		}
+
+        SimpleMailMessage message = createMessage(email.getSubject(), email.getMessageText(), email.getRecipient());
+
+        email.setAttempts(email.getAttempts() + 1);
+
+        try {
+        	sender.send(message);
+
+        	email.setSentTime(systemClock.getCurrentDateTime());
+        	email.setLastError(null);
+
+        	if (logger.isDebugEnabled()) {
+        		logger.debug("Sent email ID: {} to '{}' at attempt {}", emailId, email.getRecipient(), email.getAttempts());
+        	}
+        } catch (MailException e) {
+        	email.setLastError(StringUtils.abbreviate(e.getMessage(), MAXIMUM_ERROR_LENGTH));
+
+        	if (email.getAttempts() < maximumAttempts) {
+        		DateTime nextAttemptTime = systemClock.getCurrentDateTime().plusSeconds(getRetryDelay(email.getAttempts()));
+
+        		email.setNextAttemptTime(nextAttemptTime);
+
+        		logger.warn("Error sending email ID: {} to '{}' at attempt {}; will try again after {}: {}",
+        					emailId, email.getRecipient(), email.getAttempts(), nextAttemptTime, e.getMessage());
+        	} else {
+        		logger.error("Giving up sending email ID: {} to '{}' after {} attempts",
+        					 emailId, email.getRecipient(), email.getAttempts());
+        		logger.error("Message was: {}", email.getMessageText());
+        		logger.error("Exception:", e);
+        	}
+        }
+
+        outboundEmailRepository.save(email);
+	}
+
+	/**
+	 * Create the message to send for an email, from the default sender if there is one.
+	 *
+	 * @param subject the subject of the email
+	 * @param messageText the body of the email
+	 * @param recipient the email address to send it to
+	 * @return the message
+	 */
+	private SimpleMailMessage createMessage(String subject, String messageText, String recipient) {
         SimpleMailMessage message = new SimpleMailMessage();
-        
-        message.setSubject(email.getSubject());
-        message.setText(email.getMessageText());
+
+        message.setSubject(subject);
+        message.setText(messageText);
         message.setTo(recipient);
 
         if (StringUtils.isNotBlank(defaultSender)) {
         	message.setFrom(defaultSender);
         }
-        
-        try {
-        	sender.send(message);
-        } catch (MailException e) {
-        	logger.error("Error sending email to '{}'", recipient);
-        	logger.error("Message was: {}", email.getMessageText());
-        	logger.error("Exception:", e);
-        }
+
+        return message;
+	}
+
+	/**
+	 * Get the number of seconds to wait before retrying an email. This doubles with each
+	 * failed attempt.
+	 *
+	 * @param attempts the number of attempts that have failed so far
+	 * @return the delay before the next attempt
+	 */
+	private int getRetryDelay(int attempts) {
+		return retryDelaySeconds << Math.min(attempts - 1, 16);
 	}
 }
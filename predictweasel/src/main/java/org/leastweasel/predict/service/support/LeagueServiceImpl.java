@@ -5,12 +5,16 @@
 package org.leastweasel.predict.service.support;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.leastweasel.predict.domain.Competition;
 import org.leastweasel.predict.domain.League;
+import org.leastweasel.predict.domain.LeagueStandings;
 import org.leastweasel.predict.domain.PlayerStanding;
 import org.leastweasel.predict.domain.Prize;
 import org.leastweasel.predict.domain.Prizes;
@@ -25,6 +29,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * An implementation of the {@link LeagueService}. 
@@ -55,8 +62,10 @@ public class LeagueServiceImpl implements LeagueService {
 	 * {@inheritDoc}
 	 */
 	@Override
+	@Transactional
 	public int recalculateCompetitionLeaguePointsTotals(Competition competition) {
 		if (competition != null) {
+			long start = System.currentTimeMillis();
 			List<League> leaguesToRecalculate = leagueRepository.findByCompetition(competition);
 	
 			if (logger.isDebugEnabled()) {
@@ -64,15 +73,84 @@ public class LeagueServiceImpl implements LeagueService {
 							 leaguesToRecalculate.size(), competition.getId());
 			}
 			
-			for (League league : leaguesToRecalculate) {
-				logger.debug("About to recalulate points totals for league with code: {}", league.getCode());
-
-				for (UserSubscription subscription : league.getSubscriptions()) {
-					subscription.setPrizeOnePoints(getNumberOfPointsForPrize(subscription, league.getPrizeOneCode()));
-					subscription.setPrizeTwoPoints(getNumberOfPointsForPrize(subscription, league.getPrizeTwoCode()));
-					subscription.setPrizeThreePoints(getNumberOfPointsForPrize(subscription, league.getPrizeThreeCode()));
+			// Add up everyone's points in one query, then apply the totals to the subscriptions.
+			// Only those whose totals have actually changed are dirty, and Hibernate writes those
+			// in JDBC batches when the transaction is flushed.
+			
+			Map<String, Integer> pointsTotals = getPointsTotalsForCompetition(competition);
+			List<UserSubscription> subscriptions = userSubscriptionRepository.findByCompetition(competition);
+			Map<Long, LeagueChanges> leagueChanges = new HashMap<>();
+			int numberChanged = 0;
+			
+			for (UserSubscription subscription : subscriptions) {
+				League league = subscription.getLeague();
+				LeagueChanges changes = leagueChanges.get(league.getId());
+				boolean changed = false;
+				
+				if (changes == null) {
+					changes = new LeagueChanges(league);
+					leagueChanges.put(league.getId(), changes);
+				}
+				
+				changes.numberOfPlayers++;
+				
+				for (int i = 1; i < 4; i++) {
+					String prizeCode = league.getPrizeCode(i);
+					int points = 0;
+					
+					// Only the first prize is mandatory.
+					
+					if (prizeCode != null) {
+						Integer total = pointsTotals.get(createPointsTotalKey(subscription.getId(), prizeCode));
+						
+						if (total != null) {
+							points = total;
+						}
+					}
 					
-					userSubscriptionRepository.save(subscription);
+					if (subscription.getPrizePoints(i) != points) {
+						subscription.setPrizePoints(i, points);
+						changed = true;
+						
+						if (prizeCode != null) {
+							changes.addStanding(prizeCode, new PlayerStanding(subscription.getUser(), points));
+						}
+					}
+				}
+				
+				if (changed) {
+					numberChanged++;
+				}
+			}
+			
+			long standingsStart = System.currentTimeMillis();
+			
+			for (LeagueChanges changes : leagueChanges.values()) {
+				prepareLeagueStandings(changes);
+			}
+			
+			logger.info("Recalculated points totals for {} subscriptions to competition ID: {} in {}ms; {} changed. " +
+						"Prepared the standings of {} leagues in {}ms",
+						subscriptions.size(), competition.getId(), standingsStart - start, numberChanged,
+						leagueChanges.size(), System.currentTimeMillis() - standingsStart);
+			
+			// The standings mustn't show totals that are rolled back, so they're only published
+			// once the new totals have been committed.
+			
+			final Collection<LeagueChanges> changesToPublish = leagueChanges.values();
+			
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+					@Override
+					public void afterCommit() {
+						for (LeagueChanges changes : changesToPublish) {
+							updateLeagueStandings(changes);
+						}
+					}
+				});
+			} else {
+				for (LeagueChanges changes : changesToPublish) {
+					updateLeagueStandings(changes);
 				}
 			}
 			
@@ -86,6 +164,7 @@ public class LeagueServiceImpl implements LeagueService {
 	 * {@inheritDoc}
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public void recalculateAllLeagueStandings() {
 		List<Competition> competitions = competitionRepository.findByActive(true, null);
 		
@@ -98,6 +177,7 @@ public class LeagueServiceImpl implements LeagueService {
 	 * {@inheritDoc}
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public void recalculateCompetitionLeagueStandings(Competition competition) {
 		if (competition != null) {
 			List<League> leaguesToRecalculate = leagueRepository.findByCompetition(competition);
@@ -108,20 +188,7 @@ public class LeagueServiceImpl implements LeagueService {
 			}
 			
 			for (League league : leaguesToRecalculate) {
-				logger.debug("About to recalulate standings for league with code: {}", league.getCode());
-				
-				List<PlayerStanding> standings = calculateLeaguePrizeStandings(league, league.getPrizeOneCode(), 1);
-				standingsCache.addStandingsForLeagueAndPrize(league, league.getPrizeOneCode(), standings);
-				
-				if (league.getPrizeTwoCode() != null) {
-					standings = calculateLeaguePrizeStandings(league, league.getPrizeTwoCode(), 2);
-					standingsCache.addStandingsForLeagueAndPrize(league, league.getPrizeTwoCode(), standings);
-				}
-
-				if (league.getPrizeThreeCode() != null) {
-					standings = calculateLeaguePrizeStandings(league, league.getPrizeThreeCode(), 3);
-					standingsCache.addStandingsForLeagueAndPrize(league, league.getPrizeThreeCode(), standings);
-				}
+				recalculateLeagueStandings(league);
 			}
 		}
 	}
@@ -149,34 +216,155 @@ public class LeagueServiceImpl implements LeagueService {
 	}
 	
 	/**
-	 * Add up the points scored by a player in a league for the given prize.
-	 *  
-	 * @param subscription the user making predictions in a particular league
-	 * @param prizeCode we'll be adding up the points scored in this prize only
-	 * @return the number of points scored by the user
+	 * Recalculate the standings for all of a league's prizes from scratch, and put them in
+	 * the cache.
+	 * 
+	 * @param league the league whose standings we're going to calculate (won't be null)
 	 */
-	private int getNumberOfPointsForPrize(UserSubscription subscription, String prizeCode) {
-		int points = 0;
+	private void recalculateLeagueStandings(League league) {
+		standingsCache.putStandings(calculateLeagueStandings(league));
+	}
+	
+	/**
+	 * Calculate the standings for all of a league's prizes from scratch.
+	 * 
+	 * @param league the league whose standings we're going to calculate (won't be null)
+	 * @return the league's standings
+	 */
+	private LeagueStandings calculateLeagueStandings(League league) {
+		logger.debug("About to recalulate standings for league with code: {}", league.getCode());
 		
-		// Only the first prize is mandatory.
+		// Calculate the standings for all the league's prizes before publishing any of them,
+		// so that readers of the cache never see a mixture of old and new tables.
+		Map<String, List<PlayerStanding>> prizeStandings = new HashMap<>();
 		
-		if (prizeCode != null) {
-			Integer pointsInt = prizePointsRepository.getTotalSubscriptionPointsForPrize(subscription, prizeCode);
+		for (int i = 1; i < 4; i++) {
+			String prizeCode = league.getPrizeCode(i);
 			
-			if (pointsInt == null) {
-				logger.warn("Got null from calculating total points for subscription ID {} and prizeCode {}",
-							subscription.getId(), prizeCode);
-			} else {
-				points = pointsInt;
+			if (prizeCode != null) {
+				prizeStandings.put(prizeCode, calculateLeaguePrizeStandings(league, prizeCode, i));
+			}
+		}
+		
+		return new LeagueStandings(league.getId(), prizeStandings);
+	}
+	
+	/**
+	 * Work out, while the new points totals can still be read, whether the changes to a
+	 * league's totals can be applied to its cached standings. If the cached standings aren't
+	 * complete, because there are none yet, a player has joined the league or the league's
+	 * prizes have changed, new standings are calculated from scratch instead, ready to be
+	 * published.
+	 * 
+	 * @param changes the league and the changes in its players' totals
+	 */
+	private void prepareLeagueStandings(LeagueChanges changes) {
+		LeagueStandings currentStandings = standingsCache.getStandings(changes.league);
+		
+		if (currentStandings == null || !isComplete(currentStandings, changes)) {
+			changes.recalculatedStandings = calculateLeagueStandings(changes.league);
+		}
+	}
+	
+	/**
+	 * Bring the cached standings of a league up to date with the changes in its players'
+	 * points totals, once they've been committed. Only the players whose totals have changed
+	 * are moved, but a new snapshot is published even if there are none. If the standings had
+	 * to be recalculated from scratch they're published instead.
+	 * 
+	 * @param changes the league and the changes in its players' totals
+	 */
+	private void updateLeagueStandings(LeagueChanges changes) {
+		if (changes.recalculatedStandings != null) {
+			standingsCache.putStandings(changes.recalculatedStandings);
+			
+			return;
+		}
+		
+		while (true) {
+			LeagueStandings currentStandings = standingsCache.getStandings(changes.league);
+			
+			if (currentStandings == null || !isComplete(currentStandings, changes)) {
+				// Someone has replaced the standings with some for a different set of players
+				// since the changes were worked out, so they can't be applied.
+				
+				logger.warn("Unable to update the changed standings of league with code: {}; leaving them until "
+							+ "they're next recalculated", changes.league.getCode());
 				
+				return;
+			}
+			
+			// Even if no-one's totals have changed we publish a new snapshot, as its version
+			// tells clients that there may be new results. If someone else has replaced the
+			// standings in the meantime, apply the changes to theirs instead. The changes are
+			// to absolute totals, so applying them again is safe.
+			
+			if (standingsCache.replaceStandings(currentStandings, currentStandings.applyChanges(changes.standings))) {
 				if (logger.isDebugEnabled()) {
-					logger.debug("Total points for subscription ID: {} and prize code {} is {}",
-								 subscription.getId(), prizeCode, points);
+					logger.debug("Updated the standings of {} prizes in league with code: {}",
+								 changes.standings.size(), changes.league.getCode());
 				}
+				
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Do the given standings include every player of every one of the league's prizes.
+	 * 
+	 * @param standings the league's cached standings
+	 * @param changes the league and the number of players it has
+	 * @return true if the standings can be brought up to date by applying the changes
+	 */
+	private boolean isComplete(LeagueStandings standings, LeagueChanges changes) {
+		for (int i = 1; i < 4; i++) {
+			String prizeCode = changes.league.getPrizeCode(i);
+			
+			if (prizeCode != null && standings.getStandings(prizeCode).size() != changes.numberOfPlayers) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Get the total number of points scored in each prize by each subscription to the
+	 * leagues based on the given competition.
+	 * 
+	 * @param competition the competition whose points we're adding up (won't be null)
+	 * @return a map of points totals, keyed by subscription ID and prize code
+	 */
+	private Map<String, Integer> getPointsTotalsForCompetition(Competition competition) {
+		Map<String, Integer> pointsTotals = new HashMap<>();
+		
+		for (Object[] row : prizePointsRepository.getTotalPointsForCompetition(competition)) {
+			Long subscriptionId = (Long) row[0];
+			String prizeCode = (String) row[1];
+			Number total = (Number) row[2];
+			
+			if (total != null) {
+				pointsTotals.put(createPointsTotalKey(subscriptionId, prizeCode), total.intValue());
 			}
 		}
 		
-		return points;
+		if (logger.isDebugEnabled()) {
+			logger.debug("Got {} points totals for competition ID: {}", pointsTotals.size(), competition.getId());
+		}
+		
+		return pointsTotals;
+	}
+	
+	/**
+	 * Create the key used to look up a points total.
+	 * 
+	 * @param subscriptionId the ID of the subscription the points were scored in
+	 * @param prizeCode the code of the prize the points were scored for
+	 * @return a key unique to the combination of subscription and prize
+	 */
+	private String createPointsTotalKey(Long subscriptionId, String prizeCode) {
+		return subscriptionId + ":" + prizeCode;
 	}
 	
 	/**
@@ -223,4 +411,52 @@ public class LeagueServiceImpl implements LeagueService {
         
         return prizeStandings;
 	}
+	
+	/**
+	 * The changes to a single league's standings caused by a recalculation of its players'
+	 * points totals.
+	 */
+	private static class LeagueChanges {
+		private final League league;
+		
+		private int numberOfPlayers;
+		
+		/**
+		 * The new standings of the players whose totals have changed, keyed on prize code and
+		 * then on the ID of the player.
+		 */
+		private final Map<String, Map<Long, PlayerStanding>> standings = new HashMap<>();
+		
+		/**
+		 * The league's standings calculated from scratch, if the changes can't be applied to
+		 * the cached ones.
+		 */
+		private LeagueStandings recalculatedStandings;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param league the league whose standings are changing
+		 */
+		LeagueChanges(League league) {
+			this.league = league;
+		}
+		
+		/**
+		 * Record a player's new standing in one of the league's prizes.
+		 * 
+		 * @param prizeCode the code of the prize
+		 * @param standing the player's new standing, without a position
+		 */
+		void addStanding(String prizeCode, PlayerStanding standing) {
+			Map<Long, PlayerStanding> prizeStandings = standings.get(prizeCode);
+			
+			if (prizeStandings == null) {
+				prizeStandings = new HashMap<>();
+				standings.put(prizeCode, prizeStandings);
+			}
+			
+			prizeStandings.put(standing.getPlayer().getId(), standing);
+		}
+	}
 }
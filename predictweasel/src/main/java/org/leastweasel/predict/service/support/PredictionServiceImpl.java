@@ -5,16 +5,26 @@
 package org.leastweasel.predict.service.support;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.PostConstruct;
+
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.leastweasel.predict.domain.Competition;
+import org.leastweasel.predict.domain.FixedPredictions;
+import org.leastweasel.predict.domain.FixedPredictionsCache;
 import org.leastweasel.predict.domain.Fixture;
+import org.leastweasel.predict.domain.FixturePredictions;
+import org.leastweasel.predict.domain.FixturePredictionsCache;
 import org.leastweasel.predict.domain.League;
 import org.leastweasel.predict.domain.MatchResult;
+import org.leastweasel.predict.domain.PendingPrediction;
 import org.leastweasel.predict.domain.Prediction;
 import org.leastweasel.predict.domain.Prize;
 import org.leastweasel.predict.domain.PrizePoints;
@@ -22,12 +32,12 @@ import org.leastweasel.predict.domain.Prizes;
 import org.leastweasel.predict.domain.User;
 import org.leastweasel.predict.domain.UserSubscription;
 import org.leastweasel.predict.repository.FixtureRepository;
-import org.leastweasel.predict.repository.LeagueRepository;
 import org.leastweasel.predict.repository.PredictionRepository;
 import org.leastweasel.predict.repository.PrizePointsRepository;
 import org.leastweasel.predict.repository.UserSubscriptionRepository;
 import org.leastweasel.predict.service.Clock;
 import org.leastweasel.predict.service.PredictionService;
+import org.leastweasel.predict.web.domain.FixturePredictionBean;
 import org.leastweasel.predict.web.domain.PredictionBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,10 +46,20 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * An implementation of the {@link PredictionService}. 
+ * <p>
+ * If the {@link PredictionWriteBuffer} is enabled, changes to predictions are handed to it
+ * rather than being saved straight away, and any that are still waiting are shown in place
+ * of the saved predictions. The predictions returned for the changes aren't persistent.
+ * Changes are handed to the buffer before a transaction is started, so that a request
+ * doesn't hold a database connection while the buffer saves them.
  */
 @Service
 public class PredictionServiceImpl implements PredictionService {
@@ -49,9 +69,6 @@ public class PredictionServiceImpl implements PredictionService {
 	@Autowired
 	private PredictionRepository predictionRepository;
 	
-	@Autowired
-	private LeagueRepository leagueRepository;
-	
 	@Autowired
 	private UserSubscriptionRepository userSubscriptionRepository;
 	
@@ -64,11 +81,34 @@ public class PredictionServiceImpl implements PredictionService {
 	@Autowired
 	private Prizes prizes;
 	
+	@Autowired
+	private PredictionWriteBuffer predictionWriteBuffer;
+	
+	@Autowired
+	private FixturePredictionsCache fixturePredictionsCache;
+	
+	@Autowired
+	private FixedPredictionsCache fixedPredictionsCache;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
 	@Value("${predictWeasel.minimumNumberOfFixturesToDisplay}")
 	private int minimumNumberOfFixturesToDisplay;
 	
+	private TransactionTemplate transactionTemplate;
+	
 	private static final Logger logger = LoggerFactory.getLogger(PredictionServiceImpl.class);
 
+	/**
+	 * Set up the transaction template that changes to predictions are saved in when they
+	 * aren't handed to the {@link PredictionWriteBuffer}.
+	 */
+	@PostConstruct
+	public void initialise() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -124,28 +164,57 @@ public class PredictionServiceImpl implements PredictionService {
 	
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * The predictions are kept in the {@link FixedPredictionsCache}, as they can't change
+	 * once their fixtures have started. A cached snapshot is used as it is until the next
+	 * fixture kicks off, when only the predictions for the fixtures started since are
+	 * fetched and added to it. The competition's fixtures come from the query cache.
 	 */
 	public List<Prediction> getFixedPredictions(UserSubscription subscription) {
-		// Get all the fixtures that have started, ordered by match time. We're interested
-		// in the most recent results so we sort by descending match time.
-		Sort sortOrder = new Sort(Direction.DESC, "matchTime");
+		User user = subscription.getUser();
+		Competition competition = subscription.getLeague().getCompetition();
 		DateTime now = systemClock.getCurrentDateTime();
 		
-		List<Fixture> results = 
-				fixtureRepository.findByCompetitionAndMatchTimeBefore(subscription.getLeague().getCompetition(),
-																	 now, sortOrder);
+		FixedPredictions fixedPredictions = fixedPredictionsCache.getFixedPredictions(user, competition);
+		
+		if (fixedPredictions != null && fixedPredictions.isCompleteAt(now)) {
+			return new ArrayList<>(fixedPredictions.getPredictions());
+		}
+		
+		long generation = fixedPredictionsCache.getGeneration();
+		
+		// Find the fixtures that have started since the snapshot was taken (or all that have
+		// started if there isn't one), ordered so that the most recent is first, and the time
+		// the next one kicks off.
+		DateTime fromTime = fixedPredictions == null ? null : fixedPredictions.getNextKickoff();
+		List<Fixture> startedFixtures = new ArrayList<>();
+		DateTime nextKickoff = null;
+		
+		for (Fixture fixture : fixtureRepository.findByCompetition(competition, new Sort(Direction.DESC, "matchTime"))) {
+			DateTime matchTime = fixture.getMatchTime();
+			
+			if (!matchTime.isBefore(now)) {
+				nextKickoff = matchTime;
+			} else if (fromTime == null || !matchTime.isBefore(fromTime)) {
+				startedFixtures.add(fixture);
+			}
+		}
 	
 		if (logger.isDebugEnabled()) {
-			logger.debug("Got {} results", results.size());
+			logger.debug("Got {} newly started fixtures", startedFixtures.size());
 		}
 		
-		List<Prediction> predictions = createPredictionBeansForResults(results, subscription.getUser());
+		List<Prediction> startedPredictions = createPredictionBeansForResults(startedFixtures, user);
 		
-		if (predictions == null) {
-			predictions = new ArrayList<>();
+		if (fixedPredictions == null) {
+			fixedPredictions = new FixedPredictions(user.getId(), competition.getId(), startedPredictions, nextKickoff);
+		} else {
+			fixedPredictions = fixedPredictions.withStartedPredictions(startedPredictions, nextKickoff);
 		}
+		
+		fixedPredictionsCache.putFixedPredictions(fixedPredictions, generation);
 
-		return predictions;
+		return new ArrayList<>(fixedPredictions.getPredictions());
 	}
 	
 	/**
@@ -230,11 +299,95 @@ public class PredictionServiceImpl implements PredictionService {
 	/**
 	 * {@inheritDoc}
 	 */
-	@Transactional
-	public Prediction createOrUpdatePrediction(UserSubscription subscription,
-			   								  Fixture fixture,
-			   								  MatchResult predictedResult) {
+	public FixturePredictions getScoredPredictionsInLeagueForFixture(League league, Fixture fixture) {
+		List<FixturePredictionBean> predictionBeans = new ArrayList<>();
+		
+		if (league == null || fixture == null) {
+			return new FixturePredictions(null, null, predictionBeans);
+		}
+		
+		// Predictions can't change once the fixture has started, so from then on they're cached.
+		
+		boolean started = !fixture.getMatchTime().isAfter(systemClock.getCurrentDateTime());
+		
+		if (started) {
+			FixturePredictions cachedPredictions = fixturePredictionsCache.getFixturePredictions(league, fixture);
+			
+			if (cachedPredictions != null) {
+				return cachedPredictions;
+			}
+		}
+		
+		long cacheGeneration = fixturePredictionsCache.getGeneration();
+		
+		// Work out which of the league's prizes are shown, in the same way as the league service does.
+		
+		List<Integer> prizeNumbers = new ArrayList<>();
+		
+		for (int i = 1; i < 4; i++) {
+			String prizeCode = league.getPrizeCode(i);
+			
+			if (prizeCode != null && prizes.getPrizeForCode(prizeCode) != null) {
+				prizeNumbers.add(i);
+			}
+		}
+		
+		for (Object[] row : predictionRepository.findScoredFixturePredictionsFromLeague(league, fixture)) {
+			FixturePredictionBean bean = new FixturePredictionBean((Prediction) row[0]);
+			
+			for (int prizeNumber : prizeNumbers) {
+				Integer pointsScored = (Integer) row[prizeNumber];
+				
+				bean.addPointsScored(pointsScored == null ? 0 : pointsScored);
+			}
+			
+			predictionBeans.add(bean);
+		}
+		
+		Collections.sort(predictionBeans);
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("Got {} scored predictions for fixture ID {} in league ID {}", 
+						 predictionBeans.size(), fixture.getId(), league.getId());
+		}
+		
+		FixturePredictions fixturePredictions = new FixturePredictions(league.getId(), fixture.getId(), predictionBeans);
+		
+		if (started) {
+			fixturePredictionsCache.putFixturePredictions(fixturePredictions, cacheGeneration);
+		}
+		
+		return fixturePredictions;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public Prediction createOrUpdatePrediction(final UserSubscription subscription,
+			   								  final Fixture fixture,
+			   								  final MatchResult predictedResult) {
 
+		if (predictionWriteBuffer.add(subscription.getUser(), Collections.singletonMap(fixture, predictedResult))) {
+			return createBufferedPrediction(subscription.getUser(), fixture, predictedResult);
+		}
+		
+		return transactionTemplate.execute(new TransactionCallback<Prediction>() {
+			@Override
+			public Prediction doInTransaction(TransactionStatus status) {
+				return savePrediction(subscription, fixture, predictedResult);
+			}
+		});
+	}
+
+	/**
+	 * Save a change to a user's prediction for a fixture to the database.
+	 * 
+	 * @param subscription identifies the user whose prediction this is
+	 * @param fixture the fixture for which the user is making a prediction
+	 * @param predictedResult the predicted result of the fixture
+	 * @return the affected prediction
+	 */
+	private Prediction savePrediction(UserSubscription subscription, Fixture fixture, MatchResult predictedResult) {
 		Prediction prediction = 
 				predictionRepository.findByPredictorAndFixture(subscription.getUser(), fixture);
 		
@@ -286,37 +439,171 @@ public class PredictionServiceImpl implements PredictionService {
 	/**
 	 * {@inheritDoc}
 	 */
+	public List<Prediction> createOrUpdatePredictions(final UserSubscription subscription,
+													  final Map<Fixture, MatchResult> predictedResults) {
+		
+		List<Prediction> savedPredictions = new ArrayList<>();
+		
+		if (predictedResults.isEmpty()) {
+			return savedPredictions;
+		}
+		
+		User predictor = subscription.getUser();
+		
+		if (predictionWriteBuffer.add(predictor, predictedResults)) {
+			for (Map.Entry<Fixture, MatchResult> entry : predictedResults.entrySet()) {
+				Prediction prediction = createBufferedPrediction(predictor, entry.getKey(), entry.getValue());
+				
+				if (prediction != null) {
+					savedPredictions.add(prediction);
+				}
+			}
+			
+			return savedPredictions;
+		}
+		
+		return transactionTemplate.execute(new TransactionCallback<List<Prediction>>() {
+			@Override
+			public List<Prediction> doInTransaction(TransactionStatus status) {
+				return savePredictions(subscription.getUser(), predictedResults);
+			}
+		});
+	}
+
+	/**
+	 * Save changes to a user's predictions for several fixtures to the database.
+	 * 
+	 * @param predictor the user whose predictions these are
+	 * @param predictedResults the predicted result of each fixture; a null result deletes any
+	 * 		  existing prediction for the fixture
+	 * @return the predictions that were created or updated
+	 */
+	private List<Prediction> savePredictions(User predictor, Map<Fixture, MatchResult> predictedResults) {
+		List<Prediction> savedPredictions = new ArrayList<>();
+		Map<Long, Prediction> existingPredictions = new HashMap<>();
+		
+		for (Prediction prediction : predictionRepository.findByPredictorAndFixtureIn(predictor, predictedResults.keySet())) {
+			existingPredictions.put(prediction.getFixture().getId(), prediction);
+		}
+		
+		List<Prediction> newPredictions = new ArrayList<>();
+		List<Prediction> deletedPredictions = new ArrayList<>();
+		
+		for (Map.Entry<Fixture, MatchResult> entry : predictedResults.entrySet()) {
+			Prediction prediction = existingPredictions.get(entry.getKey().getId());
+			MatchResult predictedResult = entry.getValue();
+			
+			if (prediction == null) {
+				if (predictedResult != null) {
+					prediction = new Prediction();
+					
+					prediction.setFixture(entry.getKey());
+					prediction.setPredictor(predictor);
+					prediction.setPredictedResult(predictedResult);
+					
+					newPredictions.add(prediction);
+				}
+			} else if (predictedResult == null) {
+				deletedPredictions.add(prediction);
+			} else {
+				// The prediction is managed, so the change is written when the transaction commits.
+				prediction.setPredictedResult(predictedResult);
+				
+				savedPredictions.add(prediction);
+			}
+		}
+		
+		for (Prediction prediction : predictionRepository.save(newPredictions)) {
+			savedPredictions.add(prediction);
+		}
+		
+		predictionRepository.delete(deletedPredictions);
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("Saved {} predictions for user ID {}: {} new, {} updated and {} deleted",
+						 predictedResults.size(), predictor.getId(), newPredictions.size(),
+						 savedPredictions.size() - newPredictions.size(), deletedPredictions.size());
+		}
+		
+		return savedPredictions;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Transactional
 	public void calculatePredictionScoresForFixture(Fixture fixture) {
-		// find all the leagues played against this fixture's competition.
-		List<League> leagues = leagueRepository.findByCompetition(fixture.getCompetition()); 
+		calculatePredictionScoresForFixtures(fixture.getCompetition(), Collections.singletonList(fixture));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This is done in bulk. Rather than querying each subscription's prediction and points
+	 * separately we load all the competition's subscriptions, all the predictions for the
+	 * fixtures and all the existing points for the fixtures up front, score everything in
+	 * memory, then write any points that have changed back in JDBC batches.
+	 */
+	@Transactional
+	public int calculatePredictionScoresForFixtures(Competition competition, List<Fixture> fixtures) {
+		if (fixtures.isEmpty()) {
+			return 0;
+		}
+		
+		// Make sure we score every prediction that's been made, not just those that have been saved.
+		predictionWriteBuffer.flush();
+		
+		long startTime = System.currentTimeMillis();
+		
+		// Get the subscriptions to all the leagues played against the fixtures' competition.
+		List<UserSubscription> subscriptions = userSubscriptionRepository.findByCompetition(competition);
 
 		if (logger.isDebugEnabled()) {
-			logger.debug("Calculating points for {} leagues based on competition ID: {}", leagues.size(), 
-																						 fixture.getCompetition().getId());
+			logger.debug("Calculating points for {} fixtures and {} subscriptions based on competition ID: {}",
+						 fixtures.size(), subscriptions.size(), competition.getId());
 		}
-		for (League league : leagues) {
 		
-		    // Get all the user subscriptions to this league.
-			List<UserSubscription> subscriptions = userSubscriptionRepository.findByLeague(league);
+		Map<String, MatchResult> predictedResults = getPredictedResultsForFixtures(fixtures);
+		Map<String, Object[]> existingPoints = getExistingPrizePointsForFixtures(fixtures);
+		
+		List<PrizePoints> pointsToSave = new ArrayList<>();
+		int numberScored = 0;
 
-			logger.debug("Calculating points for {} subscriptions to league with code: '{}'", subscriptions.size(), 
-					 																		 league.getCode());
-			
-			for (UserSubscription subscription : subscriptions) { 
-				MatchResult predictedResult = null;
-				Prediction prediction = 
-						predictionRepository.findByPredictorAndFixture(subscription.getUser(), fixture);
-				
+		for (Fixture fixture : fixtures) {
+			for (UserSubscription subscription : subscriptions) {
+				League league = subscription.getLeague();
+				MatchResult predictedResult = 
+						predictedResults.get(createPredictionKey(fixture.getId(), subscription.getUser().getId()));
+	
 				// Calculate the value of the prediction using the prizes and scorer of the league.
-				if (prediction != null) {
-					predictedResult = prediction.getPredictedResult();
+				for (int i = 1; i < 4; i++) {
+					Prize prize = prizes.getPrizeForCode(league.getPrizeCode(i));
+					
+					if (prize != null) {
+						PrizePoints points = createPrizePoints(subscription, fixture, predictedResult, prize, existingPoints);
+						
+						if (points != null) {
+							pointsToSave.add(points);
+						}
+						
+						numberScored++;
+					}
 				}
-				
-				createPrizePoints(subscription, fixture, predictedResult, prizes.getPrizeForCode(league.getPrizeOneCode()));
-				createPrizePoints(subscription, fixture, predictedResult, prizes.getPrizeForCode(league.getPrizeTwoCode()));
-				createPrizePoints(subscription, fixture, predictedResult, prizes.getPrizeForCode(league.getPrizeThreeCode()));
 			}
 		}
+		
+		int numberSaved = prizePointsRepository.saveInBatches(pointsToSave);
+		long elapsedTime = Math.max(System.currentTimeMillis() - startTime, 1);
+		
+		if (fixtures.size() == 1) {
+			logger.info("Scored {} prize points for fixture ID: {} in {}ms ({} per second); {} needed saving",
+						numberScored, fixtures.get(0).getId(), elapsedTime, numberScored * 1000L / elapsedTime, numberSaved);
+		} else if (logger.isDebugEnabled()) {
+			logger.debug("Scored {} prize points for {} fixtures in {}ms ({} per second); {} needed saving",
+						 numberScored, fixtures.size(), elapsedTime, numberScored * 1000L / elapsedTime, numberSaved);
+		}
+		
+		return numberScored;
 	}
 
 	/**
@@ -329,10 +616,11 @@ public class PredictionServiceImpl implements PredictionService {
 	 * @param predictionsToReturn the predictions are added here
 	 */
 	private	void generatePredictionsFromFixtures(User user, List<Fixture> fixtures, List<Prediction> predictionsToReturn) {
+		Map<Long, Prediction> userPredictions = getPredictionsForFixtures(user, fixtures);
+		
 		for (Fixture fixture : fixtures) {
 			
-			Prediction prediction = 
-					predictionRepository.findByPredictorAndFixture(user, fixture);
+			Prediction prediction = userPredictions.get(fixture.getId());
 
 			// If there's no real prediction, wrap the fixture in a fake one so that
 			// the user can see they've yet to enter one.
@@ -348,41 +636,185 @@ public class PredictionServiceImpl implements PredictionService {
 		}
 	}
 	
+	/**
+	 * Get the predictions the given user has made for any of the given fixtures, keyed on
+	 * the ID of the fixture. They're all fetched in a single query, rather than one per
+	 * fixture, so that listing pages cost the same number of queries however many
+	 * fixtures they show.
+	 * 
+	 * @param user the user who made the predictions
+	 * @param fixtures the fixtures whose predictions we want
+	 * @return the user's predictions, keyed on fixture ID
+	 */
+	private Map<Long, Prediction> getPredictionsForFixtures(User user, List<Fixture> fixtures) {
+		Map<Long, Prediction> predictions = new HashMap<>();
+		
+		// An empty "in" clause isn't valid SQL, and there'd be nothing to find anyway.
+		
+		if (!fixtures.isEmpty()) {
+			for (Prediction prediction : predictionRepository.findByPredictorAndFixtureIn(user, fixtures)) {
+				predictions.put(prediction.getFixture().getId(), prediction);
+			}
+		}
+		
+		// Show the user any changes that haven't been saved yet, without touching the saved predictions.
+		
+		if (predictionWriteBuffer.isEnabled()) {
+			for (Fixture fixture : fixtures) {
+				PendingPrediction pendingPrediction = predictionWriteBuffer.getPendingPrediction(user, fixture);
+				
+				if (pendingPrediction != null) {
+					Prediction prediction = 
+							createBufferedPrediction(user, fixture, pendingPrediction.getPredictedResult());
+					
+					if (prediction != null) {
+						predictions.put(fixture.getId(), prediction);
+					} else {
+						predictions.remove(fixture.getId());
+					}
+				}
+			}
+		}
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("Got {} predictions by user ID {} for {} fixtures", predictions.size(), 
+																			user.getId(), fixtures.size());
+		}
+		
+		return predictions;
+	}
+	
+	/**
+	 * Create a prediction, which isn't persistent, for a change that's been handed to the
+	 * {@link PredictionWriteBuffer}.
+	 * 
+	 * @param user the user who made the prediction
+	 * @param fixture the fixture that was predicted
+	 * @param predictedResult the predicted result, or null if the prediction is being deleted
+	 * @return the prediction, or null if it's being deleted
+	 */
+	private Prediction createBufferedPrediction(User user, Fixture fixture, MatchResult predictedResult) {
+		if (predictedResult == null) {
+			return null;
+		}
+		
+		Prediction prediction = new Prediction();
+		
+		prediction.setFixture(fixture);
+		prediction.setPredictor(user);
+		prediction.setPredictedResult(predictedResult);
+		
+		return prediction;
+	}
+	
 	/**
 	 * Create a {@link PrizePoints} object for the given combination, or update an existing value. A subscription
-	 * can have separate instances for each of its up-to-three prizes.
+	 * can have separate instances for each of its up-to-three prizes. If the points have already been recorded,
+	 * and haven't changed, there's nothing to save so we return null.
 	 * 
 	 * @param subscription the fixture the prediction as based on and the user who made it (won't be null)
 	 * @param fixture the fixture the prediction was made for (won't be null)
 	 * @param predictedResult the result predicted by the user
-	 * @param prize the prize that should calculate the number of points scored
+	 * @param prize the prize that should calculate the number of points scored (won't be null)
+	 * @param existingPoints a summary of the points already recorded against the fixtures
+	 * @return the points to save, or null if they're already up to date
 	 */
-	private void createPrizePoints(UserSubscription subscription, Fixture fixture, MatchResult predictedResult, Prize prize) {
-		if (prize != null) {
-			int pointsScored = prize.calculatePointsScored(fixture, predictedResult);
-			
-			PrizePoints points = prizePointsRepository.findBySubscriptionAndFixtureAndPrizeCode(subscription, fixture, prize.getCode());
+	private PrizePoints createPrizePoints(UserSubscription subscription,
+										 Fixture fixture,
+										 MatchResult predictedResult,
+										 Prize prize,
+										 Map<String, Object[]> existingPoints) {
+		
+		int pointsScored = prize.calculatePointsScored(fixture, predictedResult);
+		
+		if (logger.isTraceEnabled()) {
+			logger.trace("Calculated {} points for fixture ID: {}, subscription ID {}, prize code: {}",
+						 pointsScored, fixture.getId(), subscription.getId(), prize.getCode());
+		}
+		
+		Object[] summary = existingPoints.get(createPrizePointsKey(fixture.getId(), subscription.getId(), prize.getCode()));
+		PrizePoints points = new PrizePoints();
 
-			if (points == null) {
-				points = new PrizePoints();
-	
-				points.setFixture(fixture);
-				points.setSubscription(subscription);
-				points.setPrizeCode(prize.getCode());
+		if (summary != null) {
+			if (((Integer) summary[3]) == pointsScored) {
+				return null;
 			}
+			
+			points.setId((Long) summary[0]);
+		}
 
-			points.setPointsScored(pointsScored);
+		points.setFixture(fixture);
+		points.setSubscription(subscription);
+		points.setPrizeCode(prize.getCode());
+		points.setPointsScored(pointsScored);
 
-			if (logger.isDebugEnabled()) {
-				logger.debug("Calculated {} points for fixture ID: {}, subscription ID {}, prize code: {}",
-								points.getPointsScored(),
-								fixture.getId(),
-								subscription.getId(),
-								prize.getCode());
-			}
-			
-			prizePointsRepository.save(points);
+		return points;
+	}
+	
+	/**
+	 * Get the results predicted for the given fixtures, keyed on the IDs of the fixture and
+	 * the user who made the prediction.
+	 * 
+	 * @param fixtures the fixtures whose predictions we want
+	 * @return the predicted results
+	 * @see #createPredictionKey(Long, Long)
+	 */
+	private Map<String, MatchResult> getPredictedResultsForFixtures(List<Fixture> fixtures) {
+		List<Prediction> predictions = predictionRepository.findByFixtureIn(fixtures);
+		Map<String, MatchResult> predictedResults = new HashMap<>(predictions.size() * 2);
+		
+		for (Prediction prediction : predictions) {
+			predictedResults.put(createPredictionKey(prediction.getFixture().getId(), prediction.getPredictor().getId()),
+								 prediction.getPredictedResult());
+		}
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("Got {} predictions for {} fixtures", predictions.size(), fixtures.size());
+		}
+		
+		return predictedResults;
+	}
+	
+	/**
+	 * Get a summary of the points already recorded against the given fixtures, keyed on a
+	 * combination of fixture ID, subscription ID and prize code.
+	 * 
+	 * @param fixtures the fixtures whose points we want
+	 * @return the points summaries
+	 * @see PrizePointsRepository#findPointsSummariesForFixtures(java.util.Collection)
+	 */
+	private Map<String, Object[]> getExistingPrizePointsForFixtures(List<Fixture> fixtures) {
+		List<Object[]> summaries = prizePointsRepository.findPointsSummariesForFixtures(fixtures);
+		Map<String, Object[]> existingPoints = new HashMap<>(summaries.size() * 2);
+		
+		for (Object[] summary : summaries) {
+			existingPoints.put(createPrizePointsKey((Long) summary[4], (Long) summary[1], (String) summary[2]), summary);
 		}
+		
+		return existingPoints;
+	}
+	
+	/**
+	 * Create the key under which a user's prediction for a fixture is stored.
+	 * 
+	 * @param fixtureId the ID of the fixture the prediction was made for
+	 * @param userId the ID of the user who made the prediction
+	 * @return the key
+	 */
+	private String createPredictionKey(Long fixtureId, Long userId) {
+		return fixtureId + ":" + userId;
+	}
+	
+	/**
+	 * Create the key under which a subscription's points for a single fixture and prize are stored.
+	 * 
+	 * @param fixtureId the ID of the fixture the points were scored on
+	 * @param subscriptionId the ID of the subscription that scored the points
+	 * @param prizeCode the code of the prize they were scored in
+	 * @return the key
+	 */
+	private String createPrizePointsKey(Long fixtureId, Long subscriptionId, String prizeCode) {
+		return fixtureId + ":" + subscriptionId + ":" + prizeCode;
 	}
 	
 	/**
@@ -472,9 +904,11 @@ public class PredictionServiceImpl implements PredictionService {
 	 */
 	private List<Prediction> createPredictionBeansForResults(List<Fixture> results, User predictor) {
 		List<Prediction> predictions = new ArrayList<>();
+		Map<Long, Prediction> predictorPredictions = getPredictionsForFixtures(predictor, results);
+		DateTime now = systemClock.getCurrentDateTime();
 
 		for (Fixture fixture : results) {
-			Prediction prediction = predictionRepository.findByPredictorAndFixture(predictor, fixture);
+			Prediction prediction = predictorPredictions.get(fixture.getId());
 			
 			if (prediction == null) {
 				prediction = new Prediction();
@@ -485,7 +919,7 @@ public class PredictionServiceImpl implements PredictionService {
 
 			// Wrap the prediction in a bean that will allow us to test whether the match has started.
 			PredictionBean bean = new PredictionBean(prediction);
-			bean.setStarted(fixture.getMatchTime().isBefore(systemClock.getCurrentDateTime()));
+			bean.setStarted(fixture.getMatchTime().isBefore(now));
 			
 			predictions.add(bean);
 		}
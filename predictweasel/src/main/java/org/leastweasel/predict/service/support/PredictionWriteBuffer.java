@@ -0,0 +1,516 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.service.support;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.joda.time.DateTime;
+import org.leastweasel.predict.domain.FixedPredictionsCache;
+import org.leastweasel.predict.domain.Fixture;
+import org.leastweasel.predict.domain.FixturePredictionsCache;
+import org.leastweasel.predict.domain.MatchResult;
+import org.leastweasel.predict.domain.PendingPrediction;
+import org.leastweasel.predict.domain.Prediction;
+import org.leastweasel.predict.domain.PredictionJournal;
+import org.leastweasel.predict.domain.User;
+import org.leastweasel.predict.exception.PredictionNotSavedException;
+import org.leastweasel.predict.repository.FixtureRepository;
+import org.leastweasel.predict.repository.PredictionRepository;
+import org.leastweasel.predict.repository.UserRepository;
+import org.leastweasel.predict.service.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Holds changes to users' {@link Prediction}s that have been accepted but not yet saved to
+ * the database, when the {@code predictWeasel.predictionWriteBehind} property is set.
+ * <p>
+ * A change is accepted as soon as it's been written to the {@link PredictionJournal}, and
+ * replaces any earlier change to the same prediction that's still waiting. Every
+ * {@code predictWeasel.predictionFlushIntervalMillis} the waiting changes are saved in
+ * batches of {@code predictWeasel.jdbcBatchSize}, each in its own transaction, and the
+ * journal is cut back to whatever's left. If the application is restarted the journal is
+ * read back, so nothing that was accepted is lost.
+ * <p>
+ * A prediction mustn't still be waiting when its fixture kicks off, as that's when other
+ * players can see it and when it may be scored. So a change to a fixture that starts within
+ * {@code predictWeasel.predictionFlushMarginSeconds} of the {@link Clock}'s current time is
+ * saved straight away, in a transaction of its own, rather than being buffered. The flush
+ * interval must be shorter than that margin: any change accepted earlier will have been saved
+ * by the next flush, before the margin has run out. Scoring a fixture also saves everything
+ * that's waiting first.
+ * <p>
+ * A change that has to be saved straight away, either for that reason or because it couldn't
+ * be written to the journal, and which then can't be saved either, is thrown away and the
+ * user is told it wasn't saved. Any earlier change to the same prediction that's still
+ * waiting is left to be saved as usual. Batches are saved one at a time, so a change that's
+ * saved straight away can't be overwritten by an earlier one being flushed at the same time.
+ * <p>
+ * Changes should be added before a transaction is started, so that a request doesn't hold a
+ * database connection while it waits for one to save them with.
+ */
+@Component
+public class PredictionWriteBuffer {
+	@Autowired
+	private PredictionRepository predictionRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private FixtureRepository fixtureRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private PredictionJournal journal;
+
+	@Autowired
+	private Clock systemClock;
+
+	@Autowired
+	private FixturePredictionsCache fixturePredictionsCache;
+
+	@Autowired
+	private FixedPredictionsCache fixedPredictionsCache;
+
+	@Value("${predictWeasel.predictionWriteBehind}")
+	private boolean enabled;
+
+	@Value("${predictWeasel.predictionFlushIntervalMillis}")
+	private long flushIntervalMillis;
+
+	@Value("${predictWeasel.predictionFlushMarginSeconds}")
+	private int flushMarginSeconds;
+
+	@Value("${predictWeasel.jdbcBatchSize}")
+	private int batchSize;
+
+	private TransactionTemplate transactionTemplate;
+
+	private final ConcurrentMap<String, PendingPrediction> pendingPredictions = new ConcurrentHashMap<>();
+
+	private final AtomicLong nextSequence = new AtomicLong(1);
+
+	private final Object saveLock = new Object();
+
+	private static final Logger logger = LoggerFactory.getLogger(PredictionWriteBuffer.class);
+
+	/**
+	 * Open the journal and read back any changes that were waiting to be saved when the
+	 * application last stopped. They're saved by the first flush.
+	 * <p>
+	 * The journal is then rewritten with just those changes, so that nothing is appended
+	 * after a line that was only partly written when the application stopped, which would
+	 * make the new line unreadable too.
+	 *
+	 * @throws IOException if the journal can't be read
+	 */
+	@PostConstruct
+	public void replayJournal() throws IOException {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		if (!enabled) {
+			return;
+		}
+
+		if (flushIntervalMillis >= flushMarginSeconds * 1000L) {
+			throw new IllegalStateException("The prediction flush interval (" + flushIntervalMillis
+											+ "ms) must be shorter than the flush margin (" + flushMarginSeconds + "s)");
+		}
+
+		long lastSequence = 0;
+
+		for (PendingPrediction prediction : journal.readAll()) {
+			PendingPrediction existing = pendingPredictions.get(prediction.getKey());
+
+			if (existing == null || existing.getSequence() < prediction.getSequence()) {
+				pendingPredictions.put(prediction.getKey(), prediction);
+			}
+
+			lastSequence = Math.max(lastSequence, prediction.getSequence());
+		}
+
+		nextSequence.set(lastSequence + 1);
+
+		journal.open();
+		journal.rewrite(pendingPredictions.values());
+
+		logger.info("Buffering prediction changes; {} read back from the journal", pendingPredictions.size());
+	}
+
+	/**
+	 * Save everything that's waiting, and close the journal.
+	 */
+	@PreDestroy
+	public void shutDown() {
+		if (!enabled) {
+			return;
+		}
+
+		flush();
+
+		journal.close();
+	}
+
+	/**
+	 * Find out whether changes are being buffered.
+	 *
+	 * @return true if changes are buffered, false if they should be saved directly
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Accept changes to some of a user's predictions. Once this returns true the changes are
+	 * safely in the journal, or have been saved to the database, and will be saved before
+	 * their fixtures start. Changes that are due to be saved are saved straight away, without
+	 * waiting for anything else to be saved.
+	 *
+	 * @param user the user making the predictions
+	 * @param predictedResults the predicted result of each fixture, or null if the prediction
+	 * 		  is being deleted
+	 * @return true if the changes were accepted, false if changes aren't being buffered, in
+	 * 		   which case the caller should save them itself
+	 * @throws PredictionNotSavedException if the changes had to be saved straight away but
+	 * 		   couldn't be, in which case none of them has been accepted
+	 */
+	public boolean add(User user, Map<Fixture, MatchResult> predictedResults) {
+		if (!enabled) {
+			return false;
+		}
+
+		List<PendingPrediction> predictions = new ArrayList<>();
+		DateTime now = systemClock.getCurrentDateTime();
+		boolean due = false;
+
+		for (Map.Entry<Fixture, MatchResult> entry : predictedResults.entrySet()) {
+			PendingPrediction prediction = new PendingPrediction(nextSequence.getAndIncrement(), user.getId(),
+																 entry.getKey().getId(), entry.getKey().getMatchTime(),
+																 entry.getValue());
+
+			predictions.add(prediction);
+			due |= isDue(prediction, now);
+		}
+
+		// The journal is rewritten under the same lock when changes have been saved, so it
+		// always matches the changes that are waiting.
+
+		boolean buffered = false;
+
+		if (!due) {
+			synchronized (journal) {
+				try {
+					journal.append(predictions);
+
+					for (PendingPrediction prediction : predictions) {
+						PendingPrediction existing = pendingPredictions.get(prediction.getKey());
+
+						if (existing == null || existing.getSequence() < prediction.getSequence()) {
+							pendingPredictions.put(prediction.getKey(), prediction);
+						}
+					}
+
+					buffered = true;
+				} catch (IOException e) {
+					logger.error("Unable to add " + predictions.size() + " predictions of user ID: " + user.getId()
+								 + " to the journal", e);
+				}
+			}
+		}
+
+		if (buffered) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Buffered {} predictions of user ID: {}", predictions.size(), user.getId());
+			}
+
+			return true;
+		}
+
+		// Changes whose fixtures are about to start, or that aren't safely in the journal, are
+		// saved now, on their own.
+
+		if (!savePredictions(predictions)) {
+			throw new PredictionNotSavedException();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get the change to a user's prediction for a fixture that's waiting to be saved, if there is one.
+	 *
+	 * @param user the user who made the prediction
+	 * @param fixture the fixture that was predicted
+	 * @return the waiting change, or null if there isn't one
+	 */
+	public PendingPrediction getPendingPrediction(User user, Fixture fixture) {
+		if (pendingPredictions.isEmpty()) {
+			return null;
+		}
+
+		return pendingPredictions.get(PendingPrediction.createKey(user.getId(), fixture.getId()));
+	}
+
+	/**
+	 * Save every change that's waiting to the database, and cut the journal back to whatever
+	 * arrives while they're being saved. If a batch can't be saved its changes stay waiting
+	 * and are tried again by the next flush.
+	 */
+	@Scheduled(fixedDelayString = "${predictWeasel.predictionFlushIntervalMillis}")
+	public synchronized void flush() {
+		if (!enabled || pendingPredictions.isEmpty()) {
+			return;
+		}
+
+		long startTime = System.currentTimeMillis();
+		List<PendingPrediction> predictions = new ArrayList<>(pendingPredictions.values());
+		DateTime now = systemClock.getCurrentDateTime();
+		int numberSaved = 0;
+
+		for (int i = 0; i < predictions.size(); i += Math.max(batchSize, 1)) {
+			List<PendingPrediction> batch = new ArrayList<>();
+
+			synchronized (saveLock) {
+				// Leave out any change that's been replaced, as the later change is either
+				// still waiting or has already been saved straight away.
+
+				for (PendingPrediction prediction : predictions.subList(i, Math.min(i + Math.max(batchSize, 1),
+																					 predictions.size()))) {
+					if (pendingPredictions.get(prediction.getKey()) == prediction) {
+						batch.add(prediction);
+					}
+				}
+
+				if (batch.isEmpty()) {
+					continue;
+				}
+
+				try {
+					saveBatch(batch);
+				} catch (RuntimeException e) {
+					logger.error("Unable to save a batch of " + batch.size() + " buffered predictions", e);
+
+					continue;
+				}
+
+				for (PendingPrediction prediction : batch) {
+					// If the prediction has been changed again while we were saving it, the later
+					// change is still waiting.
+
+					pendingPredictions.remove(prediction.getKey(), prediction);
+				}
+			}
+
+			for (PendingPrediction prediction : batch) {
+				checkSavedBeforeMatch(prediction, now);
+			}
+
+			numberSaved += batch.size();
+		}
+
+		rewriteJournal();
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Saved {} buffered predictions in {}ms; {} still waiting",
+						 numberSaved, System.currentTimeMillis() - startTime, pendingPredictions.size());
+		}
+	}
+
+	/**
+	 * Save some changes straight away, in a transaction of their own, without saving anything
+	 * else that's waiting. Any earlier change to the same predictions that's still waiting is
+	 * then dropped, as it's been overtaken; if the changes can't be saved it's left waiting.
+	 *
+	 * @param predictions the changes to save, which haven't been buffered
+	 * @return true if the changes were saved, false if they couldn't be
+	 */
+	private boolean savePredictions(List<PendingPrediction> predictions) {
+		long startTime = System.currentTimeMillis();
+		boolean overtaken = false;
+
+		synchronized (saveLock) {
+			try {
+				saveBatch(predictions);
+			} catch (RuntimeException e) {
+				logger.error("Unable to save " + predictions.size() + " predictions straight away", e);
+
+				return false;
+			}
+
+			for (PendingPrediction prediction : predictions) {
+				PendingPrediction waiting = pendingPredictions.get(prediction.getKey());
+
+				if (waiting != null && waiting.getSequence() < prediction.getSequence()) {
+					overtaken |= pendingPredictions.remove(prediction.getKey(), waiting);
+				}
+			}
+		}
+
+		DateTime now = systemClock.getCurrentDateTime();
+
+		for (PendingPrediction prediction : predictions) {
+			checkSavedBeforeMatch(prediction, now);
+		}
+
+		// Stop the overtaken changes being saved again if the journal's read back.
+
+		if (overtaken) {
+			rewriteJournal();
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Saved {} predictions straight away in {}ms",
+						 predictions.size(), System.currentTimeMillis() - startTime);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Cut the journal back to the changes that are still waiting.
+	 */
+	private void rewriteJournal() {
+		synchronized (journal) {
+			try {
+				journal.rewrite(pendingPredictions.values());
+			} catch (IOException e) {
+				// The journal still has everything in it, so nothing is lost; some changes
+				// will just be saved again if it's read back.
+
+				logger.error("Unable to rewrite the prediction journal", e);
+			}
+		}
+	}
+
+	/**
+	 * Check whether a change was saved after its fixture had started, in which case anything
+	 * cached without it is thrown away.
+	 *
+	 * @param prediction the change that was saved
+	 * @param now the time it was saved
+	 */
+	private void checkSavedBeforeMatch(PendingPrediction prediction, DateTime now) {
+		if (!prediction.getMatchTime().isAfter(now)) {
+			logger.warn("Change to the prediction of user ID: {} for fixture ID: {} was saved after the match started",
+						prediction.getUserId(), prediction.getFixtureId());
+
+			// The fixture's predictions may already have been cached without it.
+			fixturePredictionsCache.evictFixture(prediction.getFixtureId());
+			fixedPredictionsCache.evictUser(prediction.getUserId());
+		}
+	}
+
+	/**
+	 * Save a batch of changes in a single transaction. The users, fixtures and existing
+	 * predictions they refer to are each fetched in a single query.
+	 *
+	 * @param batch the changes to save
+	 */
+	private void saveBatch(final List<PendingPrediction> batch) {
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				Set<Long> userIds = new HashSet<>();
+				Set<Long> fixtureIds = new HashSet<>();
+
+				for (PendingPrediction prediction : batch) {
+					userIds.add(prediction.getUserId());
+					fixtureIds.add(prediction.getFixtureId());
+				}
+
+				Map<Long, User> users = new HashMap<>();
+				Map<Long, Fixture> fixtures = new HashMap<>();
+				Map<String, Prediction> existingPredictions = new HashMap<>();
+
+				for (User user : userRepository.findAll(userIds)) {
+					users.put(user.getId(), user);
+				}
+
+				for (Fixture fixture : fixtureRepository.findAll(fixtureIds)) {
+					fixtures.put(fixture.getId(), fixture);
+				}
+
+				// An empty "in" clause isn't valid SQL, and there'd be nothing to find anyway.
+
+				if (!users.isEmpty() && !fixtures.isEmpty()) {
+					for (Prediction prediction : predictionRepository.findByPredictorInAndFixtureIn(users.values(),
+																									fixtures.values())) {
+						existingPredictions.put(PendingPrediction.createKey(prediction.getPredictor().getId(),
+																			prediction.getFixture().getId()),
+												prediction);
+					}
+				}
+
+				List<Prediction> newPredictions = new ArrayList<>();
+				List<Prediction> deletedPredictions = new ArrayList<>();
+
+				for (PendingPrediction pendingPrediction : batch) {
+					Prediction prediction = existingPredictions.get(pendingPrediction.getKey());
+					User user = users.get(pendingPrediction.getUserId());
+					Fixture fixture = fixtures.get(pendingPrediction.getFixtureId());
+
+					if (user == null || fixture == null) {
+						logger.warn("Discarding buffered prediction of missing user ID: {} or fixture ID: {}",
+									pendingPrediction.getUserId(), pendingPrediction.getFixtureId());
+					} else if (prediction == null) {
+						if (pendingPrediction.getPredictedResult() != null) {
+							prediction = new Prediction();
+
+							prediction.setFixture(fixture);
+							prediction.setPredictor(user);
+							prediction.setPredictedResult(pendingPrediction.getPredictedResult());
+
+							newPredictions.add(prediction);
+						}
+					} else if (pendingPrediction.getPredictedResult() == null) {
+						deletedPredictions.add(prediction);
+					} else {
+						// The prediction is managed, so the change is written when the transaction commits.
+						prediction.setPredictedResult(pendingPrediction.getPredictedResult());
+					}
+				}
+
+				predictionRepository.save(newPredictions);
+				predictionRepository.delete(deletedPredictions);
+			}
+		});
+	}
+
+	/**
+	 * Check whether a change needs saving straight away because its fixture is about to start.
+	 *
+	 * @param prediction the change
+	 * @param now the current time
+	 * @return true if the fixture starts within the flush margin
+	 */
+	private boolean isDue(PendingPrediction prediction, DateTime now) {
+		return prediction.getMatchTime().minusSeconds(flushMarginSeconds).isBefore(now);
+	}
+}
@@ -0,0 +1,276 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.service.support;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.leastweasel.predict.domain.Competition;
+import org.leastweasel.predict.domain.Fixture;
+import org.leastweasel.predict.domain.FixturePredictionsCache;
+import org.leastweasel.predict.domain.RescoringProgress;
+import org.leastweasel.predict.domain.RescoringProgress.Stage;
+import org.leastweasel.predict.repository.FixtureRepository;
+import org.leastweasel.predict.service.LeagueService;
+import org.leastweasel.predict.service.PredictionService;
+import org.leastweasel.predict.service.RescoringService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.stereotype.Service;
+
+/**
+ * An implementation of the {@link RescoringService} using a fork-join pool, whose size is set
+ * by the {@code predictWeasel.rescoringThreads} property.
+ * <p>
+ * The competition's results are split in half, and in half again, until each piece has no more
+ * than {@code predictWeasel.rescoringFixturesPerTask} fixtures. Each piece is scored in its own
+ * transaction, which loads the predictions and existing points for all its fixtures at once
+ * and writes the changes in JDBC batches. Once every piece has been scored the competition's
+ * points totals and standings are rebuilt.
+ */
+@Service
+public class RescoringServiceImpl implements RescoringService {
+	@Autowired
+	private FixtureRepository fixtureRepository;
+
+	@Autowired
+	private PredictionService predictionService;
+
+	@Autowired
+	private LeagueService leagueService;
+
+	@Autowired
+	private FixturePredictionsCache fixturePredictionsCache;
+
+	@Value("${predictWeasel.rescoringThreads}")
+	private int numberOfThreads;
+
+	@Value("${predictWeasel.rescoringFixturesPerTask}")
+	private int fixturesPerTask;
+
+	private ForkJoinPool pool;
+
+	private final AtomicReference<RescoringJob> latestJob = new AtomicReference<>();
+
+	private static final Logger logger = LoggerFactory.getLogger(RescoringServiceImpl.class);
+
+	/**
+	 * Create the pool of threads that do the rescoring.
+	 */
+	@PostConstruct
+	public void createPool() {
+		pool = new ForkJoinPool(Math.max(numberOfThreads, 1));
+	}
+
+	/**
+	 * Stop any rescoring that's in progress. Whatever has already been scored stays scored, and
+	 * the competition can simply be rescored again.
+	 */
+	@PreDestroy
+	public void shutDownPool() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean startRescoring(Competition competition) {
+		RescoringJob previousJob = latestJob.get();
+
+		if (previousJob != null && previousJob.getProgress().isRunning()) {
+			logger.warn("Not rescoring competition ID: {} as competition '{}' is still being rescored",
+						competition.getId(), previousJob.competition.getName());
+
+			return false;
+		}
+
+		List<Fixture> fixtures = fixtureRepository.findByCompetitionAndResultIsNotNull(competition,
+																					  new Sort(Direction.ASC, "matchTime"));
+		RescoringJob job = new RescoringJob(competition, fixtures.size());
+
+		if (!latestJob.compareAndSet(previousJob, job)) {
+			return false;
+		}
+
+		logger.info("Rescoring {} results of competition ID: {} using {} threads",
+					fixtures.size(), competition.getId(), pool.getParallelism());
+
+		pool.execute(new RescoreCompetitionTask(job, fixtures));
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RescoringProgress getProgress() {
+		RescoringJob job = latestJob.get();
+
+		return job == null ? null : job.getProgress();
+	}
+
+	/**
+	 * The top-level task of a job: score all the results, then rebuild the totals and standings.
+	 */
+	private class RescoreCompetitionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RescoringJob job;
+
+		private final List<Fixture> fixtures;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param job the job whose progress we update
+		 * @param fixtures the competition's results
+		 */
+		RescoreCompetitionTask(RescoringJob job, List<Fixture> fixtures) {
+			this.job = job;
+			this.fixtures = fixtures;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void compute() {
+			try {
+				new ScoreFixturesTask(job, fixtures).invoke();
+
+				// Any of the competition's cached predictions may now show the wrong points.
+				fixturePredictionsCache.clear();
+
+				job.stage = Stage.TOTALLING;
+
+				leagueService.recalculateCompetitionLeaguePointsTotals(job.competition);
+				leagueService.recalculateCompetitionLeagueStandings(job.competition);
+
+				job.finish(Stage.COMPLETE, null);
+
+				RescoringProgress progress = job.getProgress();
+
+				logger.info("Rescored {} results ({} prize points) of competition ID: {} in {}ms ({} per second)",
+							progress.getFixturesScored(), progress.getPointsScored(), job.competition.getId(),
+							progress.getElapsedMillis(), progress.getPointsPerSecond());
+			} catch (RuntimeException e) {
+				job.finish(Stage.FAILED, e.getMessage());
+
+				logger.error("Unable to rescore competition ID: " + job.competition.getId(), e);
+			}
+		}
+	}
+
+	/**
+	 * Scores a list of results, either directly or, if there are too many, by splitting it in two.
+	 */
+	private class ScoreFixturesTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RescoringJob job;
+
+		private final List<Fixture> fixtures;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param job the job whose progress we update
+		 * @param fixtures the results to score
+		 */
+		ScoreFixturesTask(RescoringJob job, List<Fixture> fixtures) {
+			this.job = job;
+			this.fixtures = fixtures;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void compute() {
+			if (fixtures.size() <= Math.max(fixturesPerTask, 1)) {
+				int pointsScored = predictionService.calculatePredictionScoresForFixtures(job.competition, fixtures);
+
+				job.fixturesScored.addAndGet(fixtures.size());
+				job.pointsScored.addAndGet(pointsScored);
+			} else {
+				int middle = fixtures.size() / 2;
+
+				invokeAll(new ScoreFixturesTask(job, fixtures.subList(0, middle)),
+						  new ScoreFixturesTask(job, fixtures.subList(middle, fixtures.size())));
+			}
+		}
+	}
+
+	/**
+	 * The state of a single rescoring job, updated by its tasks as they go.
+	 */
+	private static class RescoringJob {
+		private final Competition competition;
+
+		private final int numberOfFixtures;
+
+		private final long startTime = System.currentTimeMillis();
+
+		private final AtomicInteger fixturesScored = new AtomicInteger();
+
+		private final AtomicLong pointsScored = new AtomicLong();
+
+		private volatile Stage stage = Stage.SCORING;
+
+		private volatile long endTime;
+
+		private volatile String errorMessage;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param competition the competition being rescored
+		 * @param numberOfFixtures the number of results to rescore
+		 */
+		RescoringJob(Competition competition, int numberOfFixtures) {
+			this.competition = competition;
+			this.numberOfFixtures = numberOfFixtures;
+		}
+
+		/**
+		 * Record that the job has finished.
+		 *
+		 * @param finalStage whether the job completed or failed
+		 * @param errorMessage why the job failed, or null if it didn't
+		 */
+		void finish(Stage finalStage, String errorMessage) {
+			this.errorMessage = errorMessage;
+			this.endTime = System.currentTimeMillis();
+			this.stage = finalStage;
+		}
+
+		/**
+		 * Take a snapshot of the job's progress.
+		 *
+		 * @return the progress so far
+		 */
+		RescoringProgress getProgress() {
+			Stage currentStage = stage;
+			long elapsedMillis = (currentStage == Stage.COMPLETE || currentStage == Stage.FAILED ?
+								  endTime : System.currentTimeMillis()) - startTime;
+
+			return new RescoringProgress(competition.getName(), currentStage, numberOfFixtures, fixturesScored.get(),
+										 pointsScored.get(), elapsedMillis, errorMessage);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.service.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.leastweasel.predict.domain.Fixture;
+import org.leastweasel.predict.repository.FixtureRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives the rest of the application, and ops over JMX, a handle on Hibernate's second level
+ * cache. Entities and query results can be thrown out of the cache when we know they've
+ * changed, and the cache's statistics are published so that we can see it's doing its job.
+ * <p>
+ * Hibernate keeps the cache up to date by itself when changes go through it. Evicting
+ * explicitly as well means that readers on other transactions never see a stale result,
+ * even for the moment between a change being committed and the cache catching up.
+ */
+@Component
+@ManagedResource(objectName = "predictWeasel:name=secondLevelCache",
+				 description = "Hibernate's second level cache of reference entities and fixture queries")
+public class SecondLevelCache {
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private static final Logger logger = LoggerFactory.getLogger(SecondLevelCache.class);
+
+	/**
+	 * Throw the given fixture, and the results of any queries that might include it, out
+	 * of the cache. Call this when the fixture has changed, for example when its result
+	 * has been entered.
+	 *
+	 * @param fixture the fixture that has changed
+	 */
+	public void evictFixture(Fixture fixture) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Evicting fixture ID: {} and fixture queries from the second level cache", fixture.getId());
+		}
+
+		Cache cache = getSessionFactory().getCache();
+
+		cache.evictEntity(Fixture.class, fixture.getId());
+		cache.evictQueryRegion(FixtureRepository.QUERY_CACHE_REGION);
+	}
+
+	/**
+	 * Throw everything out of the cache. Useful after changing the database by hand.
+	 */
+	@ManagedOperation(description = "Evict every entity and query result from the cache")
+	public void evictAll() {
+		logger.info("Evicting everything from the second level cache");
+
+		Cache cache = getSessionFactory().getCache();
+
+		cache.evictEntityRegions();
+		cache.evictCollectionRegions();
+		cache.evictDefaultQueryRegion();
+		cache.evictQueryRegions();
+	}
+
+	/**
+	 * Get the number of entities found in the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	@ManagedAttribute(description = "Number of entities found in the cache")
+	public long getHitCount() {
+		return getStatistics().getSecondLevelCacheHitCount();
+	}
+
+	/**
+	 * Get the number of entities looked for, but not found, in the cache.
+	 *
+	 * @return the number of cache misses
+	 */
+	@ManagedAttribute(description = "Number of entities looked for but not found in the cache")
+	public long getMissCount() {
+		return getStatistics().getSecondLevelCacheMissCount();
+	}
+
+	/**
+	 * Get the number of entities put in the cache.
+	 *
+	 * @return the number of cache puts
+	 */
+	@ManagedAttribute(description = "Number of entities put in the cache")
+	public long getPutCount() {
+		return getStatistics().getSecondLevelCachePutCount();
+	}
+
+	/**
+	 * Get the number of query results found in the cache.
+	 *
+	 * @return the number of query cache hits
+	 */
+	@ManagedAttribute(description = "Number of query results found in the cache")
+	public long getQueryHitCount() {
+		return getStatistics().getQueryCacheHitCount();
+	}
+
+	/**
+	 * Get the number of query results looked for, but not found, in the cache.
+	 *
+	 * @return the number of query cache misses
+	 */
+	@ManagedAttribute(description = "Number of query results looked for but not found in the cache")
+	public long getQueryMissCount() {
+		return getStatistics().getQueryCacheMissCount();
+	}
+
+	/**
+	 * Get a summary of each region of the cache: its hits, misses and puts, and the
+	 * number of entries it holds in memory.
+	 *
+	 * @return a line describing each region
+	 */
+	@ManagedAttribute(description = "Hits, misses, puts and size of each cache region")
+	public String[] getRegionSummaries() {
+		Statistics statistics = getStatistics();
+		List<String> summaries = new ArrayList<>();
+
+		for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+			SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(regionName);
+
+			summaries.add(regionName + ": hits=" + region.getHitCount() + ", misses=" + region.getMissCount() +
+						  ", puts=" + region.getPutCount() + ", size=" + region.getElementCountInMemory());
+		}
+
+		return summaries.toArray(new String[summaries.size()]);
+	}
+
+	/**
+	 * Reset all of the cache's statistics to zero.
+	 */
+	@ManagedOperation(description = "Reset the cache statistics")
+	public void clearStatistics() {
+		getStatistics().clear();
+	}
+
+	/**
+	 * Get Hibernate's statistics, which include those of the second level cache.
+	 *
+	 * @return the statistics
+	 */
+	private Statistics getStatistics() {
+		return getSessionFactory().getStatistics();
+	}
+
+	/**
+	 * Get the Hibernate session factory underlying the JPA entity manager factory.
+	 *
+	 * @return the session factory
+	 */
+	private SessionFactory getSessionFactory() {
+		return entityManagerFactory.unwrap(SessionFactory.class);
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.service.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.leastweasel.predict.domain.Competition;
+import org.leastweasel.predict.domain.StandingsCache;
+import org.leastweasel.predict.service.CompetitionService;
+import org.leastweasel.predict.service.LeagueService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the {@link StandingsCache} when the application starts. Standings aren't persisted
+ * so, until this has finished, every league would show empty tables.
+ * <p>
+ * The standings for each active {@link Competition}'s leagues are recalculated in parallel,
+ * using a pool whose size is set by the {@code predictWeasel.standingsWarmUpThreads} property.
+ * The work is done in the background so it doesn't hold up the start of the web server; the
+ * cache is marked as warm once every competition has been done, which is what the
+ * application's readiness check waits for.
+ * <p>
+ * If the competitions can't be read, or a competition's standings can't be calculated, for
+ * example because the database isn't reachable yet, the warm-up keeps trying, waiting twice
+ * as long after each failure up to a minute.
+ */
+@Component
+public class StandingsCacheWarmer implements ApplicationListener<ContextRefreshedEvent> {
+	private static final long INITIAL_RETRY_DELAY_MILLIS = 1000;
+	
+	private static final long MAXIMUM_RETRY_DELAY_MILLIS = 60000;
+	
+	@Autowired
+	private CompetitionService competitionService;
+	
+	@Autowired
+	private LeagueService leagueService;
+	
+	@Autowired
+	private StandingsCache standingsCache;
+	
+	@Value("${predictWeasel.standingsWarmUpThreads}")
+	private int numberOfThreads;
+	
+	private final AtomicBoolean started = new AtomicBoolean();
+	
+	private static final Logger logger = LoggerFactory.getLogger(StandingsCacheWarmer.class);
+
+	/**
+	 * Start warming the cache once the application context has been refreshed. We only
+	 * ever do this once, however many times the context (or a child of it) is refreshed.
+	 * 
+	 * @param event the event signalling that the context has been refreshed
+	 */
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		if (!started.compareAndSet(false, true)) {
+			return;
+		}
+		
+		Thread warmUpThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				warmUp();
+			}
+		}, "standings-warm-up");
+		
+		warmUpThread.setDaemon(true);
+		warmUpThread.start();
+	}
+	
+	/**
+	 * Recalculate the standings for the leagues of every active competition, then mark
+	 * the cache as warm. A failure for one competition doesn't stop the others; any that
+	 * fail are tried again until they've all been done. If the warm-up is interrupted the
+	 * cache is never marked as warm.
+	 */
+	private void warmUp() {
+		long startTime = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(numberOfThreads, 1));
+		
+		try {
+			List<Competition> competitions = findActiveCompetitions();
+			long retryDelayMillis = INITIAL_RETRY_DELAY_MILLIS;
+			
+			logger.info("Warming the standings cache for {} competitions using {} threads",
+						competitions.size(), numberOfThreads);
+			
+			competitions = recalculateStandings(executor, competitions);
+			
+			while (!competitions.isEmpty()) {
+				logger.error("Unable to warm the standings cache for {} competitions; trying again in {}ms",
+							 competitions.size(), retryDelayMillis);
+				
+				retryDelayMillis = waitToRetry(retryDelayMillis);
+				competitions = recalculateStandings(executor, competitions);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			
+			logger.warn("Interrupted before the standings cache could be warmed");
+			
+			return;
+		} finally {
+			executor.shutdown();
+		}
+		
+		standingsCache.setWarm(true);
+		
+		logger.info("Standings cache warmed in {}ms", System.currentTimeMillis() - startTime);
+	}
+	
+	/**
+	 * Recalculate the standings for the leagues of some competitions in parallel.
+	 * 
+	 * @param executor the pool of threads to do it with
+	 * @param competitions the competitions whose standings are recalculated
+	 * @return the competitions whose standings couldn't be recalculated
+	 * @throws InterruptedException if interrupted while waiting for the standings
+	 */
+	private List<Competition> recalculateStandings(ExecutorService executor, List<Competition> competitions)
+			throws InterruptedException {
+		List<Future<Void>> results = new ArrayList<>();
+		List<Competition> failedCompetitions = new ArrayList<>();
+		
+		for (final Competition competition : competitions) {
+			results.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					leagueService.recalculateCompetitionLeagueStandings(competition);
+					
+					return null;
+				}
+			}));
+		}
+		
+		for (int i = 0; i < results.size(); i++) {
+			try {
+				results.get(i).get();
+			} catch (ExecutionException e) {
+				logger.error("Unable to calculate the standings for competition ID: " + competitions.get(i).getId(),
+							 e.getCause());
+				
+				failedCompetitions.add(competitions.get(i));
+			}
+		}
+		
+		return failedCompetitions;
+	}
+	
+	/**
+	 * Get the active competitions, trying again with an increasing delay until they can be read.
+	 * 
+	 * @return the active competitions
+	 * @throws InterruptedException if interrupted while waiting to try again
+	 */
+	private List<Competition> findActiveCompetitions() throws InterruptedException {
+		long retryDelayMillis = INITIAL_RETRY_DELAY_MILLIS;
+		
+		while (true) {
+			try {
+				return competitionService.getAllActiveCompetitions();
+			} catch (RuntimeException e) {
+				logger.error("Unable to find the active competitions to warm the standings cache; trying again in "
+							 + retryDelayMillis + "ms", e);
+			}
+			
+			retryDelayMillis = waitToRetry(retryDelayMillis);
+		}
+	}
+	
+	/**
+	 * Wait before trying again to warm the cache.
+	 * 
+	 * @param retryDelayMillis how long to wait
+	 * @return how long to wait the next time, which is twice as long, up to a minute
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private long waitToRetry(long retryDelayMillis) throws InterruptedException {
+		Thread.sleep(retryDelayMillis);
+		
+		return Math.min(retryDelayMillis * 2, MAXIMUM_RETRY_DELAY_MILLIS);
+	}
+}
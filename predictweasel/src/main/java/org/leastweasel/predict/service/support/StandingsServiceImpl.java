@@ -4,12 +4,14 @@
  */
 package org.leastweasel.predict.service.support;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 
+import org.leastweasel.predict.domain.LeagueStandings;
 import org.leastweasel.predict.domain.PlayerStanding;
 import org.leastweasel.predict.domain.StandingsCache;
-import org.leastweasel.predict.domain.User;
 import org.leastweasel.predict.domain.UserSubscription;
 import org.leastweasel.predict.repository.FixtureRepository;
 import org.leastweasel.predict.repository.LeagueRepository;
@@ -22,6 +24,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 /**
@@ -56,79 +62,194 @@ public class StandingsServiceImpl implements StandingsService {
 	 * {@inheritDoc}
 	 */
 	public List<PersonalisedPlayerStanding> getAbbreviatedPrizeStandings(UserSubscription subscription, int prizeNumber) {
-		return  getMostRelevant(getCachedStandings(subscription, prizeNumber),
-								subscription.getUser(),
-								maximumNumberOfStandingsToDisplay);
+		return getMostRelevant(subscription, prizeNumber, maximumNumberOfStandingsToDisplay);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<PersonalisedPlayerStanding> getTopPrizeStandings(UserSubscription subscription, int prizeNumber) {
+		String prizeCode = subscription.getLeague().getPrizeCode(prizeNumber);
+		LeagueStandings standings = standingsCache.getStandings(subscription.getLeague());
+		
+		if (prizeCode == null || standings == null) {
+			return new ArrayList<>();
+		}
+		
+		List<PlayerStanding> allStandings = standings.getStandings(prizeCode);
+		
+		return new PersonalisedStandings(allStandings, 0, Math.min(maximumNumberOfStandingsToDisplay, allStandings.size()),
+										 -1, false);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public List<PersonalisedPlayerStanding> getFullPrizeStandings(UserSubscription subscription, int prizeNumber) {
-		return getMostRelevant(getCachedStandings(subscription, prizeNumber), 
-							   subscription.getUser(), Integer.MAX_VALUE);
+		return getMostRelevant(subscription, prizeNumber, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public Page<PersonalisedPlayerStanding> getPrizeStandingsPage(UserSubscription subscription, int prizeNumber,
+																  Pageable pageable) {
+		String prizeCode = subscription.getLeague().getPrizeCode(prizeNumber);
+		LeagueStandings standings = standingsCache.getStandings(subscription.getLeague());
+		
+		if (prizeCode == null || standings == null) {
+			return new PageImpl<>(new ArrayList<PersonalisedPlayerStanding>(), pageable, 0);
+		}
+		
+		List<PlayerStanding> allStandings = standings.getStandings(prizeCode);
+		
+		// Rather than show an empty page, show the last one. The standings may have been
+		// shortened since the link to the page was created.
+		
+		if (pageable.getOffset() >= allStandings.size() && pageable.getPageNumber() > 0) {
+			int lastPageNumber = Math.max((allStandings.size() - 1) / pageable.getPageSize(), 0);
+			
+			pageable = new PageRequest(lastPageNumber, pageable.getPageSize());
+		}
+		
+		int fromIndex = pageable.getOffset();
+		int toIndex = Math.min(fromIndex + pageable.getPageSize(), allStandings.size());
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("Getting standings {} to {} of {} for prize code: {}",
+						 fromIndex, toIndex, allStandings.size(), prizeCode);
+		}
+		
+		List<PersonalisedPlayerStanding> content =
+				new PersonalisedStandings(allStandings, fromIndex, toIndex,
+										  standings.getIndex(prizeCode, subscription.getUser()), false);
+		
+		return new PageImpl<>(content, pageable, allStandings.size());
 	}
 	
-	private List<PlayerStanding> getCachedStandings(UserSubscription subscription, int prizeNumber) {
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getPlayerPageNumber(UserSubscription subscription, int prizeNumber, int pageSize) {
 		String prizeCode = subscription.getLeague().getPrizeCode(prizeNumber);
+		LeagueStandings standings = standingsCache.getStandings(subscription.getLeague());
 		
-		if (prizeCode != null) {
-			return standingsCache.getStandings(subscription.getLeague(), prizeCode);
+		if (prizeCode == null || standings == null) {
+			return -1;
 		}
 		
-		return new ArrayList<>();
+		int index = standings.getIndex(prizeCode, subscription.getUser());
+		
+		return index < 0 ? -1 : index / pageSize;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public Long getStandingsVersion(UserSubscription subscription) {
+		LeagueStandings standings = standingsCache.getStandings(subscription.getLeague());
+		
+		return standings == null ? null : standings.getVersion();
 	}
 	
 	/**
-	 * Get the most relevant standings from the given list. For this to work the standings must
-	 * have been sorted, by position, in the desired order.
+	 * Get the most relevant of the cached standings for a league's prize: the top few, plus
+	 * the subscriber's own standing if it isn't among them. The subscriber's standing is found
+	 * using the snapshot's index rather than by searching, and the personalised standings are
+	 * a view of the snapshot, so none of the standings are copied.
 	 *  
-	 * @param allStandings the full list of standings from which to choose
-	 * @param playerToHighlight make sure this player's standing appears in the list, even if
-	 * 		  it has to be tacked on to the end
-	 * @param minimumNumberRequired we want at least this many standings, if there are that many
-	 * @return
+	 * @param subscription defines the player to highlight and the league being played
+	 * @param prizeNumber the index of the prize the standings are for (1, 2, 3)
+	 * @param maximumNumberRequired we want this many standings, if there are that many,
+	 * 		  including the highlighted player's
+	 * @return the standings, in order, with the highlighted player's at the end if it
+	 * 		   isn't among the top few
 	 */
-	private List<PersonalisedPlayerStanding> getMostRelevant(List<PlayerStanding> allStandings,
-															User playerToHighlight,
+	private List<PersonalisedPlayerStanding> getMostRelevant(UserSubscription subscription, int prizeNumber,
 															int maximumNumberRequired) {
+		String prizeCode = subscription.getLeague().getPrizeCode(prizeNumber);
+		LeagueStandings standings = standingsCache.getStandings(subscription.getLeague());
 		
-		PlayerStanding highlightStanding = null;
-
-		// Find the standing for the player to highlight.
-		for (PlayerStanding standing : allStandings) {
-			if (standing.getPlayer().equals(playerToHighlight)) {
-				highlightStanding = standing;
-				break;
-			}
+		if (prizeCode == null || standings == null) {
+			return new ArrayList<>();
 		}
 		
-		List<PersonalisedPlayerStanding> desiredStandings = new ArrayList<>();
+		List<PlayerStanding> allStandings = standings.getStandings(prizeCode);
+		int highlightIndex = standings.getIndex(prizeCode, subscription.getUser());
 		
-		// Now add the desired number of standings to the list.
-		boolean addedHighlightStanding = false;
+		// Unless the player to highlight is among the top few we need to leave room to tack
+		// their standing on the end.
+		int numberOfTopStandings = maximumNumberRequired;
 		
-		for (PlayerStanding standing : allStandings) {
-			// If we haven't added the highlight player yet then reduce the
-			// maximum by 1 as we're going to have to add it after.
-			int maxNumber = maximumNumberRequired - (addedHighlightStanding ? 0 : 1);
-			
-			if (desiredStandings.size() >= maxNumber) {
-				break;
-			} else {
-				if (!addedHighlightStanding && standing.getPlayer().equals(playerToHighlight)) {
-					desiredStandings.add(new PersonalisedPlayerStanding(standing, true));
-					addedHighlightStanding = true;
-				} else {
-					desiredStandings.add(new PersonalisedPlayerStanding(standing, false));
-				}
-			}
+		if (highlightIndex < 0 || highlightIndex >= maximumNumberRequired) {
+			numberOfTopStandings--;
+		}
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("Player ID: {} is at index {} of {} standings for prize code: {}",
+						 subscription.getUser().getId(), highlightIndex, allStandings.size(), prizeCode);
 		}
 		
-		if (!addedHighlightStanding && highlightStanding != null) {
-			desiredStandings.add(new PersonalisedPlayerStanding(highlightStanding, true));
+		return new PersonalisedStandings(allStandings, 0, Math.min(numberOfTopStandings, allStandings.size()),
+										 highlightIndex, true);
+	}
+	
+	/**
+	 * A read-only view of a run of a prize's cached standings, optionally followed by the
+	 * highlighted player's standing if it isn't among them. Each standing is personalised as
+	 * it's read, so only those that are displayed are ever created.
+	 */
+	private static class PersonalisedStandings extends AbstractList<PersonalisedPlayerStanding>
+											   implements RandomAccess {
+		private final List<PlayerStanding> allStandings;
+		
+		private final int fromIndex;
+		
+		private final int toIndex;
+		
+		private final int highlightIndex;
+		
+		private final boolean appendHighlighted;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param allStandings the prize's full standings, in order
+		 * @param fromIndex the index of the first standing to show
+		 * @param toIndex the index after the last standing to show
+		 * @param highlightIndex the index of the standing to highlight, or -1 if there isn't one
+		 * @param appendHighlighted should the highlighted standing be tacked on the end if it
+		 * 		  isn't among those shown
+		 */
+		PersonalisedStandings(List<PlayerStanding> allStandings, int fromIndex, int toIndex,
+							  int highlightIndex, boolean appendHighlighted) {
+			this.allStandings = allStandings;
+			this.fromIndex = fromIndex;
+			this.toIndex = toIndex;
+			this.highlightIndex = highlightIndex;
+			this.appendHighlighted = appendHighlighted && highlightIndex >= toIndex;
 		}
 		
-		return desiredStandings;
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public PersonalisedPlayerStanding get(int index) {
+			if (index < 0 || index >= size()) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+			}
+			
+			int standingIndex = index < toIndex - fromIndex ? fromIndex + index : highlightIndex;
+			
+			return new PersonalisedPlayerStanding(allStandings.get(standingIndex), standingIndex == highlightIndex);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int size() {
+			return appendHighlighted ? toIndex - fromIndex + 1 : toIndex - fromIndex;
+		}
 	}
 }
@@ -7,10 +7,12 @@ package org.leastweasel.predict.service.support;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.leastweasel.predict.domain.FixturePredictionsCache;
 import org.leastweasel.predict.domain.League;
+import org.leastweasel.predict.domain.SubscriptionCache;
+import org.leastweasel.predict.domain.SubscriptionSummary;
 import org.leastweasel.predict.domain.User;
 import org.leastweasel.predict.domain.UserSubscription;
-import org.leastweasel.predict.repository.LeagueRepository;
 import org.leastweasel.predict.repository.UserSubscriptionRepository;
 import org.leastweasel.predict.service.SecurityService;
 import org.leastweasel.predict.service.SubscriptionService;
@@ -31,7 +33,10 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 	private UserSubscriptionRepository subscriptionRepository;
 	
 	@Autowired
-	private LeagueRepository leagueRepository;
+	private SubscriptionCache subscriptionCache;
+	
+	@Autowired
+	private FixturePredictionsCache fixturePredictionsCache;
 
 	private static final Logger logger = LoggerFactory.getLogger(SubscriptionServiceImpl.class);
 
@@ -48,6 +53,29 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 		return subscriptions;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<SubscriptionSummary> getSubscriptionSummaries(User user) {
+		List<SubscriptionSummary> summaries = subscriptionCache.getSubscriptions(user);
+		
+		if (summaries == null) {
+			summaries = new ArrayList<>();
+			
+			for (UserSubscription subscription : getSubscriptions(user)) {
+				summaries.add(new SubscriptionSummary(subscription));
+			}
+			
+			if (logger.isDebugEnabled()) {
+				logger.debug("Caching {} subscriptions for user ID: {}", summaries.size(), user.getId());
+			}
+			
+			subscriptionCache.putSubscriptions(user, summaries);
+		}
+		
+		return summaries;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -88,31 +116,23 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 		User loggedInUser = securityService.getLoggedInUser();
 
 		if (loggedInUser != null && leagueCode != null) {
-			League league = leagueRepository.findByCode(leagueCode);
+			UserSubscription subscription = 
+					subscriptionRepository.findByUserAndLeagueCode(loggedInUser, leagueCode);
 			
-			if (league != null) {
-				UserSubscription subscription = 
-						subscriptionRepository.findByUserAndLeague(loggedInUser, league);
-				
-				if (logger.isDebugEnabled()) {
-					if (subscription != null) {
-						logger.debug("Found subscriptionID: {} for user ID: {} and league code: {}", 
-									 subscription.getId(),
-									 subscription.getUser().getId(),
-									 leagueCode);
-					} else {
-						logger.debug("No subscription found for user ID: {} and league code: {}", 
-								 loggedInUser.getId(),
+			if (logger.isDebugEnabled()) {
+				if (subscription != null) {
+					logger.debug("Found subscriptionID: {} for user ID: {} and league code: {}", 
+								 subscription.getId(),
+								 subscription.getUser().getId(),
 								 leagueCode);
-					}
-				}
-				
-				return subscription;
-			} else {
-				if (logger.isDebugEnabled()) {
-					logger.debug("No league found with code: {}", leagueCode);
+				} else {
+					logger.debug("No subscription found for user ID: {} and league code: {}", 
+							 loggedInUser.getId(),
+							 leagueCode);
 				}
 			}
+			
+			return subscription;
 		}
 		
 		return null;
@@ -127,6 +147,12 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 		subscription.setLeague(league);
 		subscription.setUser(user);
 		
-		return subscriptionRepository.save(subscription);
+		subscription = subscriptionRepository.save(subscription);
+		subscriptionCache.evictSubscriptions(user);
+		
+		// The new player's predictions for fixtures that have already started need to be shown.
+		fixturePredictionsCache.evictLeague(league);
+		
+		return subscription;
 	}
 }
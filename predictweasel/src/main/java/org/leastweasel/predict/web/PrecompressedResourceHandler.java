@@ -0,0 +1,146 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.HttpRequestHandler;
+import org.springframework.web.context.ServletContextAware;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Serves the fingerprinted copies of the static assets (see {@link StaticAssets}). A copy's
+ * name changes whenever its content does, so it can be cached for ever. Where the build wrote
+ * a brotli or gzip variant of a copy, and the browser accepts it, the variant is served
+ * instead, saving compressing the asset on every request.
+ */
+public class PrecompressedResourceHandler implements HttpRequestHandler, ServletContextAware {
+	private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+	private static final String[] ENCODINGS = { "br", "gzip" };
+
+	private static final String[] ENCODING_EXTENSIONS = { ".br", ".gz" };
+
+	private final String location;
+
+	private ServletContext servletContext;
+
+	private static final Logger logger = LoggerFactory.getLogger(PrecompressedResourceHandler.class);
+
+	/**
+	 * Constructor.
+	 *
+	 * @param location the class path location of the assets, for example "public/assets/"
+	 */
+	public PrecompressedResourceHandler(String location) {
+		this.location = location;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setServletContext(ServletContext servletContext) {
+		this.servletContext = servletContext;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handleRequest(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		boolean head = "HEAD".equals(request.getMethod());
+
+		if (!head && !"GET".equals(request.getMethod())) {
+			response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+			return;
+		}
+
+		String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+
+		if (path == null || path.isEmpty() || path.contains("..") || path.contains(":")) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		Resource resource = new ClassPathResource(location + path);
+
+		if (!resource.isReadable()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("No static asset found at: {}", path);
+			}
+
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		String contentType = servletContext.getMimeType(resource.getFilename());
+		String acceptEncoding = request.getHeader("Accept-Encoding");
+
+		for (int i = 0; i < ENCODINGS.length; i++) {
+			if (accepts(acceptEncoding, ENCODINGS[i])) {
+				Resource encodedResource = new ClassPathResource(location + path + ENCODING_EXTENSIONS[i]);
+
+				if (encodedResource.exists()) {
+					response.setHeader("Content-Encoding", ENCODINGS[i]);
+					resource = encodedResource;
+					break;
+				}
+			}
+		}
+
+		if (contentType != null) {
+			response.setContentType(contentType);
+		}
+
+		response.setHeader("Cache-Control", CACHE_CONTROL);
+		response.setHeader("Vary", "Accept-Encoding");
+		response.setContentLength((int) resource.contentLength());
+
+		if (head) {
+			return;
+		}
+
+		try (InputStream in = resource.getInputStream()) {
+			StreamUtils.copy(in, response.getOutputStream());
+		}
+	}
+
+	/**
+	 * Does an Accept-Encoding header accept an encoding? It doesn't if the encoding is given
+	 * a quality of zero.
+	 *
+	 * @param acceptEncoding the Accept-Encoding header, which may be null
+	 * @param encoding the encoding
+	 * @return true if the encoding is accepted
+	 */
+	private boolean accepts(String acceptEncoding, String encoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parameters = coding.split(";");
+
+			if (parameters[0].trim().equalsIgnoreCase(encoding)) {
+				return parameters.length == 1 || !parameters[1].trim().matches("q=0(\\.0*)?");
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,215 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.web;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A piece of a page that has been rendered once and is shared by everyone who sees it,
+ * apart from a few personal slots that are filled in for each player.
+ * <p>
+ * A template rendering a shared fragment marks each slot using the {@link Slots} it's given.
+ * A value slot is empty unless it's filled in; a section slot holds the shared markup, but
+ * that can be replaced for a player, for example to highlight their row of a table. The
+ * markers are made of characters from Unicode's private use area, which escaping leaves
+ * alone, along with a random token that's different for each rendering. Text that players
+ * have entered, such as their names, could include the marker characters, but without the
+ * token they're taken as just text.
+ * <p>
+ * Each fragment carries the version of the content it was rendered from, so that a cached
+ * fragment can be checked to see whether it's still up to date.
+ */
+public class SharedFragment {
+	private static final char MARKER_START = '\uE000';
+
+	private static final char MARKER_END = '\uE001';
+
+	private static final char VALUE = '=';
+
+	private static final char SECTION_START = '#';
+
+	private static final char SECTION_END = '/';
+
+	private static final SecureRandom random = new SecureRandom();
+
+	private final String version;
+
+	private final String[] texts;
+
+	private final String[] slotNames;
+
+	private final String[] slotContents;
+
+	private final int length;
+
+	/**
+	 * Create the marks for a template to use to show where the slots are in a new rendering
+	 * of a shared fragment.
+	 *
+	 * @return the marks, with a token of their own
+	 */
+	public static Slots createSlots() {
+		return new Slots(Long.toHexString(random.nextLong()));
+	}
+
+	/**
+	 * Constructor. Finds the slots in the rendered markup.
+	 *
+	 * @param version the version of the content the fragment was rendered from
+	 * @param markup the rendered markup, including the slot markers
+	 * @param slots the marks the markup was rendered with
+	 * @throws IllegalArgumentException if the slot markers are badly formed or nested
+	 */
+	public SharedFragment(String version, String markup, Slots slots) {
+		List<String> textList = new ArrayList<>();
+		List<String> nameList = new ArrayList<>();
+		List<String> contentList = new ArrayList<>();
+		String markerPrefix = slots.prefix();
+		int textStart = 0;
+		int markerStart;
+
+		while ((markerStart = markup.indexOf(markerPrefix, textStart)) >= 0) {
+			int typeIndex = markerStart + markerPrefix.length();
+			int markerEnd = markup.indexOf(MARKER_END, typeIndex);
+
+			if (markerEnd < 0) {
+				throw new IllegalArgumentException("Unterminated slot marker at offset: " + markerStart);
+			}
+
+			char type = markup.charAt(typeIndex);
+			String name = markup.substring(typeIndex + 1, markerEnd);
+
+			textList.add(markup.substring(textStart, markerStart));
+			nameList.add(name);
+			textStart = markerEnd + 1;
+
+			if (type == VALUE) {
+				contentList.add("");
+			} else if (type == SECTION_START) {
+				int sectionEnd = markup.indexOf(markerPrefix, textStart);
+
+				if (sectionEnd < 0 || markup.charAt(sectionEnd + markerPrefix.length()) != SECTION_END) {
+					throw new IllegalArgumentException("Section slot: " + name + " isn't closed before the next marker");
+				}
+
+				contentList.add(markup.substring(textStart, sectionEnd));
+				textStart = markup.indexOf(MARKER_END, sectionEnd) + 1;
+			} else {
+				throw new IllegalArgumentException("Unexpected slot marker at offset: " + markerStart);
+			}
+		}
+
+		textList.add(markup.substring(textStart));
+
+		this.version = version;
+		this.texts = textList.toArray(new String[textList.size()]);
+		this.slotNames = nameList.toArray(new String[nameList.size()]);
+		this.slotContents = contentList.toArray(new String[contentList.size()]);
+		this.length = markup.length();
+	}
+
+	/**
+	 * Get the version of the content the fragment was rendered from.
+	 *
+	 * @return the content version
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Fill in the fragment's slots for a player. Any slot without a personal value keeps
+	 * its shared content.
+	 *
+	 * @param personalValues the markup to put in each slot, keyed on the slot's name, which
+	 * 		  must already be escaped
+	 * @return the player's copy of the fragment
+	 */
+	public String personalise(Map<String, String> personalValues) {
+		StringBuilder buff = new StringBuilder(length);
+
+		for (int i = 0; i < slotNames.length; i++) {
+			String personalValue = personalValues.get(slotNames[i]);
+
+			buff.append(texts[i]);
+			buff.append(personalValue != null ? personalValue : slotContents[i]);
+		}
+
+		buff.append(texts[slotNames.length]);
+
+		return buff.toString();
+	}
+
+	/**
+	 * Creates the markers for a template to put around the slots in a shared fragment. A
+	 * template is only given them when it's rendering a shared fragment, so it can test
+	 * for them to decide whether to mark a slot or fill it in itself.
+	 */
+	public static class Slots {
+		private final String prefix;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param token the token that starts each of the markers
+		 */
+		private Slots(String token) {
+			this.prefix = MARKER_START + token;
+		}
+
+		/**
+		 * Mark a slot for a personal value.
+		 *
+		 * @param name the name of the slot
+		 * @return the marker
+		 */
+		public String value(String name) {
+			return marker(VALUE, name);
+		}
+
+		/**
+		 * Mark the start of a section whose shared content can be replaced for a player.
+		 *
+		 * @param name the name of the section
+		 * @return the marker
+		 */
+		public String start(String name) {
+			return marker(SECTION_START, name);
+		}
+
+		/**
+		 * Mark the end of a section.
+		 *
+		 * @return the marker
+		 */
+		public String end() {
+			return marker(SECTION_END, "");
+		}
+
+		/**
+		 * Create a slot marker.
+		 *
+		 * @param type the type of the marker
+		 * @param name the name of the slot, which mustn't contain the marker characters
+		 * @return the marker
+		 */
+		private String marker(char type, String name) {
+			return new StringBuilder(prefix.length() + name.length() + 2).append(prefix).append(type).append(name)
+																		 .append(MARKER_END).toString();
+		}
+
+		/**
+		 * Get the characters every slot marker starts with.
+		 *
+		 * @return the start of a marker, up to its type
+		 */
+		private String prefix() {
+			return prefix;
+		}
+	}
+}
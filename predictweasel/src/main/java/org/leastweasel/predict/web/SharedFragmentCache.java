@@ -0,0 +1,58 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the {@link SharedFragment}s of pages, each held under a key naming the
+ * fragment and whatever it's shared by, such as a league or competition. Fragments aren't
+ * evicted when their content changes: a fragment is only returned if it was rendered from
+ * the version of the content the caller has, and is replaced once that changes. The cache
+ * is bounded, throwing out the least recently used fragments once full.
+ */
+public class SharedFragmentCache {
+	private final Map<String, SharedFragment> fragments;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maximumSize the maximum number of fragments held
+	 */
+	public SharedFragmentCache(final int maximumSize) {
+		this.fragments = new LinkedHashMap<String, SharedFragment>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, SharedFragment> eldest) {
+				return size() > maximumSize;
+			}
+		};
+	}
+
+	/**
+	 * Get a fragment, provided it was rendered from the given version of its content.
+	 *
+	 * @param key the key the fragment is held under
+	 * @param version the current version of the fragment's content
+	 * @return the fragment, or null if it isn't in the cache or is out of date
+	 */
+	public synchronized SharedFragment getFragment(String key, String version) {
+		SharedFragment fragment = fragments.get(key);
+
+		return fragment != null && fragment.getVersion().equals(version) ? fragment : null;
+	}
+
+	/**
+	 * Add a fragment to the cache, replacing any already held under the same key.
+	 *
+	 * @param key the key the fragment is held under
+	 * @param fragment the fragment
+	 */
+	public synchronized void putFragment(String key, SharedFragment fragment) {
+		fragments.put(key, fragment);
+	}
+}
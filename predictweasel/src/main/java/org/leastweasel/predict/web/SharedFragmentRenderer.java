@@ -0,0 +1,177 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.web;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.spring4.context.SpringWebContext;
+import org.thymeleaf.spring4.expression.ThymeleafEvaluationContext;
+
+/**
+ * Renders the pieces of a page that are the same for everyone who sees them, such as a
+ * league's standings or a competition's latest results, keeping them in the
+ * {@link SharedFragmentCache} so that each is only rendered once for each version of its
+ * content. All each player then needs is a small overlay of personal values, such as their
+ * predictions, filled into the fragment's slots.
+ * <p>
+ * The fragments are picked by name from the {@code sharedFragments} template, which
+ * includes the same templates as the rest of the site, so they look just the same as
+ * those rendered as part of a page.
+ */
+@Component
+public class SharedFragmentRenderer {
+	private static final String TEMPLATE_NAME = "sharedFragments";
+
+	private static final String SESSION_ID_PARAMETER = ";jsessionid=";
+
+	@Autowired
+	private TemplateEngine templateEngine;
+
+	@Autowired
+	private SharedFragmentCache sharedFragmentCache;
+
+	@Autowired
+	private ServletContext servletContext;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	private static final Logger logger = LoggerFactory.getLogger(SharedFragmentRenderer.class);
+
+	/**
+	 * Get a player's copy of a shared fragment, rendering the fragment first if the cached
+	 * one isn't from the current version of its content. If the slots in the rendered
+	 * fragment can't be found, the fragment is rendered from the shared model just for the
+	 * player instead, without their personal values.
+	 *
+	 * @param fragmentName the name of the fragment
+	 * @param scope what the fragment is shared by, for example "league-1"
+	 * @param version the current version of the content the fragment shows
+	 * @param sharedModel the model from which to render the fragment, which mustn't
+	 * 		  include anything personal outside of the fragment's slots
+	 * @param personalValues the player's escaped markup for the fragment's slots
+	 * @param request the request being handled
+	 * @param response the response to the request
+	 * @return the fragment, filled in for the player
+	 */
+	public String render(String fragmentName, String scope, String version, Map<String, ?> sharedModel,
+						 Map<String, String> personalValues, HttpServletRequest request,
+						 HttpServletResponse response) {
+		Locale locale = RequestContextUtils.getLocale(request);
+		String key = fragmentName + ":" + scope + ":" + locale;
+		SharedFragment fragment = sharedFragmentCache.getFragment(key, version);
+
+		if (fragment == null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Rendering shared fragment: {} at version: {}", key, version);
+			}
+
+			Map<String, Object> variables = new HashMap<>(sharedModel);
+			SharedFragment.Slots slots = SharedFragment.createSlots();
+
+			variables.put("slots", slots);
+
+			// Links in the fragment are shared, so mustn't have anybody's session ID encoded in them.
+			HttpServletResponse sharedResponse = new HttpServletResponseWrapper(response) {
+				@Override
+				public String encodeURL(String url) {
+					return removeSessionId(super.encodeURL(url));
+				}
+			};
+
+			try {
+				fragment = new SharedFragment(version, process(fragmentName, variables, locale, request, sharedResponse),
+											  slots);
+			} catch (IllegalArgumentException e) {
+				logger.error("Unable to find the slots in shared fragment: " + key + " at version: " + version, e);
+
+				return renderPersonal(fragmentName, sharedModel, request, response);
+			}
+
+			sharedFragmentCache.putFragment(key, fragment);
+		}
+
+		return fragment.personalise(personalValues);
+	}
+
+	/**
+	 * Render one of the fragments just for the current player, for example to fill in a
+	 * slot of a shared fragment.
+	 *
+	 * @param fragmentName the name of the fragment
+	 * @param model the model from which to render the fragment
+	 * @param request the request being handled
+	 * @param response the response to the request
+	 * @return the rendered fragment
+	 */
+	public String renderPersonal(String fragmentName, Map<String, ?> model, HttpServletRequest request,
+								 HttpServletResponse response) {
+		return process(fragmentName, new HashMap<String, Object>(model), RequestContextUtils.getLocale(request),
+					   request, response);
+	}
+
+	/**
+	 * Take the session ID out of a link, leaving any other rewriting of it, such as pointing
+	 * it at the fingerprinted copy of a static asset.
+	 *
+	 * @param url the encoded link
+	 * @return the link without a session ID
+	 */
+	private String removeSessionId(String url) {
+		int sessionIdStart = url.indexOf(SESSION_ID_PARAMETER);
+
+		if (sessionIdStart < 0) {
+			return url;
+		}
+
+		int sessionIdEnd = sessionIdStart + 1;
+
+		while (sessionIdEnd < url.length() && "?#;".indexOf(url.charAt(sessionIdEnd)) < 0) {
+			sessionIdEnd++;
+		}
+
+		return url.substring(0, sessionIdStart) + url.substring(sessionIdEnd);
+	}
+
+	/**
+	 * Render one of the fragments in the shared fragments template.
+	 *
+	 * @param fragmentName the name of the fragment
+	 * @param variables the model from which to render the fragment
+	 * @param locale the locale in which to render it
+	 * @param request the request being handled
+	 * @param response the response to the request
+	 * @return the rendered fragment
+	 */
+	private String process(String fragmentName, Map<String, Object> variables, Locale locale,
+						   HttpServletRequest request, HttpServletResponse response) {
+		variables.put("fragment", fragmentName);
+
+		// Give the templates the same conversions as a view gets, for example to format dates.
+		ConversionService conversionService = (ConversionService) request.getAttribute(ConversionService.class.getName());
+
+		variables.put(ThymeleafEvaluationContext.THYMELEAF_EVALUATION_CONTEXT_CONTEXT_VARIABLE_NAME,
+					  new ThymeleafEvaluationContext(applicationContext, conversionService));
+
+		// The template's other fragments leave blank lines around the one that's rendered.
+		return templateEngine.process(TEMPLATE_NAME, new SpringWebContext(request, response, servletContext, locale,
+																		   variables, applicationContext)).trim();
+	}
+}
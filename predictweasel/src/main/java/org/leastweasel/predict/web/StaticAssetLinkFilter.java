@@ -0,0 +1,91 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.web;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Points the links to static assets in pages at the assets' fingerprinted copies. Thymeleaf
+ * passes every link it writes through {@link HttpServletResponse#encodeURL(String)}, so
+ * wrapping the response is all it takes for the templates' links, such as
+ * {@code @{/js/league.js}}, to be rewritten without the templates having to know.
+ * <p>
+ * Spring Security wraps the response in one that doesn't pass links on to be encoded, as it
+ * stops session IDs being put in them, so this filter has to go in the security filter chain,
+ * inside that wrapper.
+ */
+public class StaticAssetLinkFilter extends OncePerRequestFilter {
+	private final StaticAssets staticAssets;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param staticAssets the fingerprinted copies of the assets
+	 */
+	public StaticAssetLinkFilter(StaticAssets staticAssets) {
+		this.staticAssets = staticAssets;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		if (staticAssets.isEmpty()) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		final String contextPath = request.getContextPath();
+
+		filterChain.doFilter(request, new HttpServletResponseWrapper(response) {
+			@Override
+			public String encodeURL(String url) {
+				return super.encodeURL(rewriteLink(url, contextPath));
+			}
+		});
+	}
+
+	/**
+	 * Point a link at the fingerprinted copy of the asset it links to, keeping any query
+	 * string or fragment.
+	 *
+	 * @param url the link
+	 * @param contextPath the context path of the application
+	 * @return the rewritten link, or the original if it isn't to an asset with a copy
+	 */
+	private String rewriteLink(String url, String contextPath) {
+		if (!url.startsWith(contextPath + "/")) {
+			return url;
+		}
+
+		int pathEnd = url.length();
+
+		for (char c : new char[] { '?', '#', ';' }) {
+			int index = url.indexOf(c);
+
+			if (index >= 0 && index < pathEnd) {
+				pathEnd = index;
+			}
+		}
+
+		String fingerprintedPath = staticAssets.getFingerprintedPath(url.substring(contextPath.length(), pathEnd));
+
+		if (fingerprintedPath == null) {
+			return url;
+		}
+
+		return contextPath + fingerprintedPath + url.substring(pathEnd);
+	}
+}
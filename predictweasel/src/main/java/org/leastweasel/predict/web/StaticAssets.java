@@ -0,0 +1,69 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.web;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+/**
+ * The fingerprinted copies of the static assets (scripts, stylesheets, fonts and images) that
+ * pages link to in place of the originals. The build's fingerprintAssets task writes each copy
+ * under /assets with the hash of its content in its name, so that it can be cached for ever,
+ * and maps the paths of the originals to them in a manifest.
+ * <p>
+ * When there's no manifest, for example when running from an IDE, there are no fingerprinted
+ * copies and pages link to the originals.
+ */
+public class StaticAssets {
+	private final Map<String, String> fingerprintedPaths = new HashMap<>();
+
+	private static final Logger logger = LoggerFactory.getLogger(StaticAssets.class);
+
+	/**
+	 * Constructor. Loads the manifest, if there is one.
+	 *
+	 * @param manifest the manifest written by the build
+	 * @throws IOException if the manifest can't be read
+	 */
+	public StaticAssets(Resource manifest) throws IOException {
+		if (manifest.exists()) {
+			Properties properties = PropertiesLoaderUtils.loadProperties(manifest);
+
+			for (String path : properties.stringPropertyNames()) {
+				fingerprintedPaths.put(path, properties.getProperty(path));
+			}
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded {} fingerprinted static assets", fingerprintedPaths.size());
+		}
+	}
+
+	/**
+	 * Are there no fingerprinted copies of the assets?
+	 *
+	 * @return true if there's nothing to link to but the originals
+	 */
+	public boolean isEmpty() {
+		return fingerprintedPaths.isEmpty();
+	}
+
+	/**
+	 * Get the path of the fingerprinted copy of an asset.
+	 *
+	 * @param path the path of the original asset, for example "/js/league.js"
+	 * @return the path of the copy, or null if there isn't one
+	 */
+	public String getFingerprintedPath(String path) {
+		return fingerprintedPaths.get(path);
+	}
+}
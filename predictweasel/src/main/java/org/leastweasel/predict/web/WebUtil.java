@@ -8,6 +8,7 @@ import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 
 import org.leastweasel.predict.domain.League;
+import org.leastweasel.predict.domain.UserSubscription;
 import org.springframework.web.util.WebUtils;
 
 /**
@@ -23,6 +24,11 @@ public class WebUtil {
 		 */
 	    private static final String CURRENT_LEAGUE_CODE = "currentLeagueCode";
 
+		/**
+		 * Name of the request attribute holding the player's current {@link UserSubscription}.
+		 */
+	    private static final String CURRENT_SUBSCRIPTION = WebUtil.class.getName() + ".currentSubscription";
+
 		/**
 		 * Get the value of the cookie holding the code of the user's current league. Returns null if
 		 * there's no such cookie in the request.
@@ -39,5 +45,26 @@ public class WebUtil {
 	    		return cookie.getValue();
 	    	}
 	    }
+
+		/**
+		 * Get the player's current subscription, if it has already been loaded during this request.
+		 * 
+		 * @param request the servlet request in which the subscription might have been stored
+		 * @return the subscription, or null if it hasn't been stored in the request
+		 */
+	    public static UserSubscription getCurrentSubscription(HttpServletRequest request) {
+	    	return (UserSubscription) request.getAttribute(CURRENT_SUBSCRIPTION);
+	    }
+
+		/**
+		 * Store the player's current subscription in the request, so that it only needs to be
+		 * loaded once however many times it's asked for while handling the request.
+		 * 
+		 * @param request the servlet request in which to store the subscription
+		 * @param subscription the player's current subscription
+		 */
+	    public static void setCurrentSubscription(HttpServletRequest request, UserSubscription subscription) {
+	    	request.setAttribute(CURRENT_SUBSCRIPTION, subscription);
+	    }
 	}
 }
@@ -7,7 +7,9 @@ package org.leastweasel.predict.web.controller;
 import java.util.List;
 
 import org.leastweasel.predict.domain.Competition;
+import org.leastweasel.predict.domain.RescoringProgress;
 import org.leastweasel.predict.service.CompetitionService;
+import org.leastweasel.predict.service.RescoringService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -24,6 +26,9 @@ public class CompetitionsController {
 	@Autowired
 	private CompetitionService competitionService;
 	
+	@Autowired
+	private RescoringService rescoringService;
+	
 	/**
 	 * Handle a GET request to navigate to the page from which s/he can perform
 	 * {@link Competition} based actions, such as entering results for a competition's fixtures.     
@@ -45,4 +50,14 @@ public class CompetitionsController {
 	public List<Competition> getActiveCompetitions() {
 		return competitionService.getAllActiveCompetitions();
 	}
+	
+	/**
+	 * Set up the progress of the latest competition rescoring, so the user can see how it's going.
+	 * 
+	 * @return the progress of the latest rescoring, or null if nothing has been rescored
+	 */
+	@ModelAttribute("rescoringProgress")
+	public RescoringProgress getRescoringProgress() {
+		return rescoringService.getProgress();
+	}
 }
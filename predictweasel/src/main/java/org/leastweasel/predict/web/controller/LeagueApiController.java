@@ -0,0 +1,298 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.web.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.leastweasel.predict.domain.Fixture;
+import org.leastweasel.predict.domain.League;
+import org.leastweasel.predict.domain.MatchResult;
+import org.leastweasel.predict.domain.Prediction;
+import org.leastweasel.predict.domain.User;
+import org.leastweasel.predict.domain.UserSubscription;
+import org.leastweasel.predict.repository.UserSubscriptionRepository;
+import org.leastweasel.predict.service.PredictionService;
+import org.leastweasel.predict.service.StandingsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Controller that provides the standings, results and predictions of the {@link User}'s
+ * 'current' {@link League} as JSON, for clients other than the web pages.
+ * <p>
+ * Clients are expected to poll these while results are being entered, so every response has
+ * a strong ETag. If the client sends it back in an {@code If-None-Match} header, and nothing
+ * has changed, we reply with a 304 without sending the response again. The standings' ETag
+ * is built from the version of the league's cached standings, which changes whenever a
+ * result is saved, so the standings needn't be fetched at all. The ETags of the results and
+ * predictions are built from a digest of what's being returned, so they can't be out of date
+ * even if the standings haven't been updated.
+ */
+@Controller
+public class LeagueApiController {
+	@Autowired
+	private StandingsService standingsService;
+
+	@Autowired
+	private PredictionService predictionService;
+
+	@Autowired
+	private UserSubscriptionRepository subscriptionRepository;
+
+	@Value("${predictWeasel.standingsPageSize}")
+	private int defaultPageSize;
+
+	@Value("${predictWeasel.maximumStandingsPageSize}")
+	private int maximumPageSize;
+
+	private static final Logger logger = LoggerFactory.getLogger(LeagueApiController.class);
+
+	/**
+	 * Get a page of the standings for one of the league's prizes.
+	 *
+	 * @param subscription the user and league for which we want the standings
+	 * @param prizeNumber the index of the prize (1, 2, 3) whose standings we want
+	 * @param pageNumber the number of the page, counting from 0; if not given, the page
+	 * 		  showing the user's own position
+	 * @param pageSize the number of standings per page
+	 * @param request the request, whose ETag we check
+	 * @return the page of standings, or null if the client's copy is up to date
+	 */
+	@RequestMapping(value="/league/api/standings", method = RequestMethod.GET, produces="application/json")
+	public ResponseEntity<Map<String, Object>> getStandings(UserSubscription subscription,
+			@RequestParam(value = "prize", required = false, defaultValue = "1") int prizeNumber,
+			@RequestParam(value = "page", required = false) Integer pageNumber,
+			@RequestParam(value = "size", required = false) Integer pageSize,
+			WebRequest request) {
+
+		int size = (pageSize == null || pageSize < 1) ? defaultPageSize : Math.min(pageSize, maximumPageSize);
+
+		if (isNotModified(request, subscription, standingsService.getStandingsVersion(subscription),
+						  "standings", prizeNumber, pageNumber, size)) {
+			return null;
+		}
+
+		if (prizeNumber < 1 || prizeNumber > 3 || subscription.getLeague().getPrizeCode(prizeNumber) == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+
+		int playerPageNumber = standingsService.getPlayerPageNumber(subscription, prizeNumber, size);
+		int page = pageNumber != null ? Math.max(pageNumber, 0) : Math.max(playerPageNumber, 0);
+
+		Page<PersonalisedPlayerStanding> standingsPage =
+				standingsService.getPrizeStandingsPage(subscription, prizeNumber, new PageRequest(page, size));
+
+		List<Map<String, Object>> standings = new ArrayList<>();
+
+		for (PersonalisedPlayerStanding standing : standingsPage) {
+			Map<String, Object> standingDetails = new LinkedHashMap<>();
+
+			standingDetails.put("position", standing.getPosition());
+			standingDetails.put("playerId", standing.getPlayer().getId());
+			standingDetails.put("playerName", standing.getPlayer().getName());
+			standingDetails.put("pointsScored", standing.getPointsScored());
+			standingDetails.put("highlighted", standing.isHighlighted());
+
+			standings.add(standingDetails);
+		}
+
+		Map<String, Object> response = new LinkedHashMap<>();
+
+		response.put("prizeCode", subscription.getLeague().getPrizeCode(prizeNumber));
+		response.put("page", standingsPage.getNumber());
+		response.put("size", standingsPage.getSize());
+		response.put("totalPages", standingsPage.getTotalPages());
+		response.put("totalStandings", standingsPage.getTotalElements());
+		response.put("playerPage", playerPageNumber);
+		response.put("standings", standings);
+
+		return new ResponseEntity<>(response, HttpStatus.OK);
+	}
+
+	/**
+	 * Get the most recent results of the league's competition, along with the user's
+	 * predictions for them.
+	 *
+	 * @param subscription the user and league for which we want the results
+	 * @param request the request, whose ETag we check
+	 * @return the results, or null if the client's copy is up to date
+	 */
+	@RequestMapping(value="/league/api/results", method = RequestMethod.GET, produces="application/json")
+	public ResponseEntity<Map<String, Object>> getRecentResults(UserSubscription subscription, WebRequest request) {
+		Map<String, Object> response = new LinkedHashMap<>();
+
+		response.put("results", createPredictionDetails(predictionService.getPredictionsForRecentResults(subscription)));
+
+		if (isNotModified(request, subscription, getDigest(response), "results")) {
+			return null;
+		}
+
+		return new ResponseEntity<>(response, HttpStatus.OK);
+	}
+
+	/**
+	 * Get a player's predictions for all the results of the league's competition. Only the
+	 * predictions of players in the same league can be seen.
+	 *
+	 * @param subscription the user and league for which we want the predictions
+	 * @param user the player whose predictions we want; if not given, the user's own
+	 * @param request the request, whose ETag we check
+	 * @return the predictions, or null if the client's copy is up to date
+	 */
+	@RequestMapping(value="/league/api/predictions", method = RequestMethod.GET, produces="application/json")
+	public ResponseEntity<Map<String, Object>> getPredictions(UserSubscription subscription,
+			@RequestParam(value = "user", required = false) User user,
+			WebRequest request) {
+
+		UserSubscription playerSubscription = subscription;
+
+		if (user != null && !user.equals(subscription.getUser())) {
+			playerSubscription = subscriptionRepository.findByUserAndLeague(user, subscription.getLeague());
+
+			// There's nothing stopping a user from asking for any user ID, so we need to
+			// check that the user has a subscription to this league.
+
+			if (playerSubscription == null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("User ID {} does not have a subscription to league ID {} ",
+								 user.getId(), subscription.getLeague().getId());
+				}
+
+				return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+			}
+		}
+
+		Map<String, Object> response = new LinkedHashMap<>();
+
+		response.put("playerId", playerSubscription.getUser().getId());
+		response.put("playerName", playerSubscription.getUser().getName());
+		response.put("predictions",
+					 createPredictionDetails(predictionService.getPredictionsForAllResults(playerSubscription)));
+
+		if (isNotModified(request, subscription, getDigest(response), "predictions",
+						  playerSubscription.getUser().getId())) {
+			return null;
+		}
+
+		return new ResponseEntity<>(response, HttpStatus.OK);
+	}
+
+	/**
+	 * Check whether the client already has the response we're about to create. The ETag is
+	 * made of the version of what's being returned, the user and the details of the request;
+	 * if it matches the one the client sent the response status is set to 304. Either way, the
+	 * ETag is added to the response.
+	 *
+	 * @param request the request, whose ETag we check
+	 * @param subscription the user and league the response is for
+	 * @param version the version of the content of the response, or null if it isn't known
+	 * @param details anything else that the response depends on
+	 * @return true if the client's copy is up to date, so we needn't create the response
+	 */
+	private boolean isNotModified(WebRequest request, UserSubscription subscription, Object version,
+								  Object... details) {
+		// Without a version, for example when there aren't any standings, we can't tell
+		// whether anything has changed.
+
+		if (version == null) {
+			return false;
+		}
+
+		StringBuilder eTag = new StringBuilder("\"");
+
+		eTag.append(subscription.getLeague().getId()).append('-').append(version)
+			.append('-').append(subscription.getUser().getId());
+
+		for (Object detail : details) {
+			eTag.append('-').append(detail);
+		}
+
+		eTag.append('"');
+
+		boolean notModified = request.checkNotModified(eTag.toString());
+
+		if (notModified && logger.isDebugEnabled()) {
+			logger.debug("Client of user ID: {} already has the response with ETag: {}",
+						 subscription.getUser().getId(), eTag);
+		}
+
+		return notModified;
+	}
+
+	/**
+	 * Get a digest of a response that's to be sent to the client, to use as its version.
+	 *
+	 * @param response the response
+	 * @return the digest, as hex
+	 */
+	private String getDigest(Map<String, Object> response) {
+		return DigestUtils.md5DigestAsHex(response.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Create the details of some predictions to send to the client.
+	 *
+	 * @param predictions the predictions, each of which is for a fixture that may have a result
+	 * @return the details of each prediction and its fixture
+	 */
+	private List<Map<String, Object>> createPredictionDetails(List<Prediction> predictions) {
+		List<Map<String, Object>> predictionDetails = new ArrayList<>();
+
+		if (predictions == null) {
+			return predictionDetails;
+		}
+
+		for (Prediction prediction : predictions) {
+			Fixture fixture = prediction.getFixture();
+			Map<String, Object> details = new LinkedHashMap<>();
+
+			details.put("fixtureId", fixture.getId());
+			details.put("matchTime", fixture.getMatchTime().toString());
+			details.put("homeTeam", fixture.getHomeTeam().getName());
+			details.put("awayTeam", fixture.getAwayTeam().getName());
+			details.put("result", createScoreDetails(fixture.getResult()));
+			details.put("prediction", createScoreDetails(prediction.getPredictedResult()));
+
+			predictionDetails.add(details);
+		}
+
+		return predictionDetails;
+	}
+
+	/**
+	 * Create the details of a score to send to the client.
+	 *
+	 * @param score the score, which may be missing or incomplete
+	 * @return the number of goals scored by each team, or null if there's no complete score
+	 */
+	private Map<String, Object> createScoreDetails(MatchResult score) {
+		if (score == null || !score.isComplete()) {
+			return null;
+		}
+
+		Map<String, Object> details = new LinkedHashMap<>();
+
+		details.put("homeScore", score.getHomeScore());
+		details.put("awayScore", score.getAwayScore());
+
+		return details;
+	}
+}
@@ -10,8 +10,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.leastweasel.predict.domain.League;
+import org.leastweasel.predict.domain.SubscriptionSummary;
 import org.leastweasel.predict.domain.User;
-import org.leastweasel.predict.domain.UserSubscription;
 import org.leastweasel.predict.service.SecurityService;
 import org.leastweasel.predict.service.SubscriptionService;
 import org.leastweasel.predict.web.SessionSettings;
@@ -25,7 +25,8 @@ import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 /**
  * Intercepts configured requests to set up the 'current' {@link League} code in the
  * player's HTTP session. The current league is the one they're playing at the
- * moment.
+ * moment. This happens on nearly every request, so it works from the cached
+ * {@link SubscriptionSummary}s of the player rather than loading their subscriptions.
  */
 @Component
 public class LeagueCodeResolvingHandlerInterceptor extends HandlerInterceptorAdapter {
@@ -55,7 +56,7 @@ public class LeagueCodeResolvingHandlerInterceptor extends HandlerInterceptorAda
 	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
 		throws Exception {
 	
-		UserSubscription currentSubscription  = null;
+		SubscriptionSummary currentSubscription  = null;
 		
 		// Check that the user is logged in.
 		User loggedInUser = securityService.getLoggedInUser();
@@ -67,7 +68,7 @@ public class LeagueCodeResolvingHandlerInterceptor extends HandlerInterceptorAda
 		}
 		
 		// Check the user has at least one subscription.
-		List<UserSubscription> subscriptions = subscriptionService.getSubscriptions(loggedInUser);
+		List<SubscriptionSummary> subscriptions = subscriptionService.getSubscriptionSummaries(loggedInUser);
 
 		if (subscriptions.isEmpty()) {
 			if (logger.isDebugEnabled()) {
@@ -115,7 +116,7 @@ public class LeagueCodeResolvingHandlerInterceptor extends HandlerInterceptorAda
 		// If still not got one, check for single subscription.
 		if (currentSubscription == null) {
 			if (subscriptions.size() == 1) {
-				String singleLeagueCode = subscriptions.get(0).getLeague().getCode();
+				String singleLeagueCode = subscriptions.get(0).getLeagueCode();
 				
 				currentSubscription = getSubscription(subscriptions, singleLeagueCode);
 				
@@ -132,13 +133,13 @@ public class LeagueCodeResolvingHandlerInterceptor extends HandlerInterceptorAda
 		sessionSettings.setHasMultipleSubscriptions(subscriptions.size() > 1);
 		
 		if (currentSubscription != null) {
-			sessionSettings.setCurrentLeagueCode(currentSubscription.getLeague().getCode());
-			sessionSettings.setLeagueAdmin(currentSubscription.getLeague().getOwner().equals(loggedInUser));
+			sessionSettings.setCurrentLeagueCode(currentSubscription.getLeagueCode());
+			sessionSettings.setLeagueAdmin(currentSubscription.isLeagueOwner());
 			
 			if (sessionSettings.isLeagueAdmin()) {
 				if (logger.isDebugEnabled()) {
 					logger.debug("User ID {} is admin for league with code {}",
-								 loggedInUser.getId(), currentSubscription.getLeague().getId());
+								 loggedInUser.getId(), currentSubscription.getLeagueCode());
 				}
 			}
 		} else {
@@ -155,9 +156,9 @@ public class LeagueCodeResolvingHandlerInterceptor extends HandlerInterceptorAda
 	 * @param leagueCode the league code to check
 	 * @return the subscription for the league code, or null if there isn't one
 	 */
-	private UserSubscription getSubscription(List<UserSubscription> subscriptions, String leagueCode) {
-		for (UserSubscription subscription : subscriptions) {
-			if (subscription.getLeague().getCode().equals(leagueCode)) {
+	private SubscriptionSummary getSubscription(List<SubscriptionSummary> subscriptions, String leagueCode) {
+		for (SubscriptionSummary subscription : subscriptions) {
+			if (subscription.getLeagueCode().equals(leagueCode)) {
 				return subscription;
 			}
 		}
@@ -5,31 +5,49 @@
 package org.leastweasel.predict.web.controller;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.leastweasel.predict.domain.BlogPost;
+import org.leastweasel.predict.domain.Fixture;
 import org.leastweasel.predict.domain.League;
 import org.leastweasel.predict.domain.Prediction;
-import org.leastweasel.predict.domain.Prize;
 import org.leastweasel.predict.domain.User;
 import org.leastweasel.predict.domain.UserSubscription;
+import org.leastweasel.predict.format.MatchResultFormatter;
 import org.leastweasel.predict.service.BlogService;
 import org.leastweasel.predict.service.LeagueService;
 import org.leastweasel.predict.service.PredictionService;
 import org.leastweasel.predict.service.StandingsService;
+import org.leastweasel.predict.web.SharedFragment;
+import org.leastweasel.predict.web.SharedFragmentRenderer;
+import org.leastweasel.predict.web.domain.PredictionBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.web.csrf.CsrfToken;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.springframework.web.util.HtmlUtils;
 
 /**
  * Controller that allows a user to navigate to the home page of a single {@link League}. The
  * league in question will be the {@link User}'s 'current' league. It  will have been
  * predetermined so is not passed in as a parameter.
+ * <p>
+ * Most of the page is the same for everyone playing the league, so it's made of
+ * {@link SharedFragment}s that are only rendered when their content changes. All that's
+ * rendered for each user is their predictions, their standings and the form's CSRF token.
  * 
  * @see LeagueCodeResolvingHandlerInterceptor
  */
@@ -47,6 +65,12 @@ public class LeagueController {
 	@Autowired
 	private BlogService blogService;
 	
+	@Autowired
+	private SharedFragmentRenderer sharedFragmentRenderer;
+	
+	@Autowired
+	private MatchResultFormatter matchResultFormatter;
+	
 	private static final Logger logger = LoggerFactory.getLogger(LeagueController.class);
 
 	/**
@@ -80,25 +104,40 @@ public class LeagueController {
 	
 	/**
 	 * Set up the most recent results, and their predictions, so that we can show
-	 * them in the view.     
+	 * them in the view. The results are shared by everyone playing the competition, and
+	 * only the predictions are filled in for the user.
 	 * 
-	 * @return a list of the predictions for the most recently completed fixtures
+	 * @param subscription identifies the user and the league they're currently playing
+	 * @param request the request being handled
+	 * @param response the response to the request
+	 * @return the markup showing the predictions for the most recently completed fixtures
 	 */
-	@ModelAttribute("matchResults")
-	public List<Prediction> getRecentResults(UserSubscription subscription) {
-		return predictionService.getPredictionsForRecentResults(subscription);
+	@ModelAttribute("recentResults")
+	public String getRecentResults(UserSubscription subscription, HttpServletRequest request,
+								   HttpServletResponse response) {
+		List<Prediction> results = predictionService.getPredictionsForRecentResults(subscription);
+		
+		return sharedFragmentRenderer.render("recentResults", getCompetitionScope(subscription),
+											 getFixturesVersion(results),
+											 Collections.singletonMap("matchResults", results),
+											 getPredictedResults(results), request, response);
 	}
 	
 	/**
 	 * Set up a list of predictions for the next fixtures to be played, so that we can show
-	 * them in the view. We'll also allow the user to create and later edit their predictions.    
+	 * them in the view. We'll also allow the user to create and later edit their predictions.
+	 * The fixtures are shared by everyone playing the competition, and only the predictions
+	 * and the form's CSRF token are filled in for the user.
 	 * 
 	 * @param subscription identifies the user and the league they're currently playing
-	 * @return a list of the predictions for the next batch of fixtures to be played
+	 * @param model the model, to which we add whether there are more fixtures than are shown
+	 * @param request the request being handled
+	 * @param response the response to the request
+	 * @return the markup showing the predictions for the next batch of fixtures to be played
 	 */
-	@ModelAttribute("predictionFixtures")
-	public List<Prediction> upcomingFixtures(UserSubscription subscription,
-			 			    		 Model model) {
+	@ModelAttribute("upcomingFixtures")
+	public String upcomingFixtures(UserSubscription subscription, Model model, HttpServletRequest request,
+								   HttpServletResponse response) {
 		
 		List<Prediction> fixtures = new ArrayList<>();
 		
@@ -106,58 +145,218 @@ public class LeagueController {
 		
 		model.addAttribute("moreFixtures", numberOfFixtures > fixtures.size()); 
 		
-		return fixtures;
+		// The form shows the predictions as they'd be edited, rather than as they're listed.
+		Locale locale = RequestContextUtils.getLocale(request);
+		Map<String, String> personalValues = new HashMap<>();
+		
+		for (Prediction prediction : fixtures) {
+			personalValues.put(getPredictionSlotName(prediction),
+							   HtmlUtils.htmlEscape(matchResultFormatter.print(prediction.getPredictedResult(), locale)));
+		}
+		
+		CsrfToken csrfToken = (CsrfToken) request.getAttribute(CsrfToken.class.getName());
+		
+		if (csrfToken != null) {
+			personalValues.put("csrf", HtmlUtils.htmlEscape(csrfToken.getToken()));
+		}
+		
+		return sharedFragmentRenderer.render("upcomingFixtures", getCompetitionScope(subscription),
+											 getFixturesVersion(fixtures),
+											 Collections.singletonMap("predictionFixtures", fixtures),
+											 personalValues, request, response);
 	}
 
 	/**
 	 * Set up the most missing results, and their predictions, so that we can show
 	 * them in the view. These are the fixtures that have started but for which we
-	 * do not yet have a result.    
+	 * do not yet have a result. The fixtures are shared by everyone playing the competition,
+	 * and only the predictions are filled in for the user.
 	 * 
-	 * @return a list of the predictions for the started fixtures without a result
+	 * @param subscription identifies the user and the league they're currently playing
+	 * @param request the request being handled
+	 * @param response the response to the request
+	 * @return the markup showing the predictions for the started fixtures without a result,
+	 * 		   or null if there aren't any
 	 */
 	@ModelAttribute("missingResults")
-	public List<Prediction> getMissingResults(UserSubscription subscription) {
-		return predictionService.getPredictionsForMissingResults(subscription);
+	public String getMissingResults(UserSubscription subscription, HttpServletRequest request,
+									HttpServletResponse response) {
+		List<Prediction> missingResults = predictionService.getPredictionsForMissingResults(subscription);
+		
+		if (missingResults.isEmpty()) {
+			return null;
+		}
+		
+		return sharedFragmentRenderer.render("missingResults", getCompetitionScope(subscription),
+											 getFixturesVersion(missingResults),
+											 Collections.singletonMap("missingResults", missingResults),
+											 getPredictedResults(missingResults), request, response);
 	}
 	
 	/**
-	 * Get the standings for the current league in each of the prize categories.    
+	 * Get the standings for the current league in each of the prize categories. The top
+	 * few standings are shared by everyone playing the league. The user's own standing is
+	 * highlighted for them, replacing the last of the shared standings if it isn't among them.
 	 * 
 	 * @param subscription identifies the user and the league they're currently playing
-	 * @return a list of the player standings, each of which is itself a list
+	 * @param request the request being handled
+	 * @param response the response to the request
+	 * @return the markup showing the player standings for each prize
 	 */
 	@ModelAttribute("prizeStandings")
-	public List<List<PersonalisedPlayerStanding>> getPrizeStandings(UserSubscription subscription) {
-		List<List<PersonalisedPlayerStanding>> prizeStandings = new ArrayList<>();
+	public String getPrizeStandings(UserSubscription subscription, HttpServletRequest request,
+									HttpServletResponse response) {
+		Long standingsVersion = standingsService.getStandingsVersion(subscription);
+		List<List<PersonalisedPlayerStanding>> topStandings = new ArrayList<>();
+		Map<String, String> personalValues = new HashMap<>();
+		
+		for (int prizeNumber = 1; prizeNumber <= 3; prizeNumber++) {
+			List<PersonalisedPlayerStanding> standings =
+					standingsService.getAbbreviatedPrizeStandings(subscription, prizeNumber);
+			
+			for (int i = 0; i < standings.size(); i++) {
+				if (standings.get(i).isHighlighted()) {
+					personalValues.put(getStandingSlotName(prizeNumber, i),
+									   sharedFragmentRenderer.renderPersonal("standingRow",
+											   								 Collections.singletonMap("standing", standings.get(i)),
+											   								 request, response));
+				}
+			}
+			
+			// There can be one more of the shared standings than the user sees, when they
+			// aren't in the standings at all.
+			personalValues.put(getStandingSlotName(prizeNumber, standings.size()), "");
+			
+			topStandings.add(standingsService.getTopPrizeStandings(subscription, prizeNumber));
+		}
+		
+		Map<String, Object> sharedModel = new HashMap<>();
 		
-		prizeStandings.add(standingsService.getAbbreviatedPrizeStandings(subscription, 1));
-		prizeStandings.add(standingsService.getAbbreviatedPrizeStandings(subscription, 2));
-		prizeStandings.add(standingsService.getAbbreviatedPrizeStandings(subscription, 3));
+		sharedModel.put("prizes", leagueService.getLeaguePrizes(subscription.getLeague()));
+		sharedModel.put("prizeStandings", topStandings);
 		
-		return prizeStandings;
+		return sharedFragmentRenderer.render("standings", getLeagueScope(subscription),
+											 String.valueOf(standingsVersion), sharedModel,
+											 personalValues, request, response);
 	}
 	
 	/**
-	 * Get the prizes offered by the current league.    
+	 * Get the most recent post from the given league's blog, which is the same for everyone
+	 * playing the league.
 	 * 
 	 * @param subscription identifies the user and the league they're currently playing
-	 * @return a list of the prizes being played for
+	 * @param request the request being handled
+	 * @param response the response to the request
+	 * @return the markup showing the league's blog's most recent post
 	 */
-	@ModelAttribute("prizes")
-	public List<Prize> getPrizeCategories(UserSubscription subscription) {
+	@ModelAttribute("blogPost")
+	public String getLatestBlogPost(UserSubscription subscription, HttpServletRequest request,
+									HttpServletResponse response) {
+		BlogPost blogPost = blogService.getLatestPostForLeague(subscription.getLeague());
 		
-		return leagueService.getLeaguePrizes(subscription.getLeague());
+		return sharedFragmentRenderer.render("blogPost", getLeagueScope(subscription), getBlogPostVersion(blogPost),
+											 Collections.singletonMap("blogPost", blogPost),
+											 Collections.<String, String>emptyMap(), request, response);
 	}
 	
 	/**
-	 * Get the most recent post from the given league's blog.
+	 * Get what the fragments showing a competition's fixtures are shared by.
 	 * 
-	 * @param subscription identifies the user and the league they're currently playing
-	 * @return the league's blog's most recent post
+	 * @param subscription identifies the league, and so the competition, being played
+	 * @return the scope of the competition's fragments
 	 */
-	@ModelAttribute("blogPost")
-	public BlogPost getLatestBlogPost(UserSubscription subscription) {
-		return blogService.getLatestPostForLeague(subscription.getLeague());
+	private String getCompetitionScope(UserSubscription subscription) {
+		return "competition-" + subscription.getLeague().getCompetition().getId();
+	}
+	
+	/**
+	 * Get what the fragments showing a league's standings and blog are shared by.
+	 * 
+	 * @param subscription identifies the league being played
+	 * @return the scope of the league's fragments
+	 */
+	private String getLeagueScope(UserSubscription subscription) {
+		return "league-" + subscription.getLeague().getId();
+	}
+	
+	/**
+	 * Work out the version of the shared content of a list of predictions: which fixtures
+	 * they're for, their results and whether they've started.
+	 * 
+	 * @param predictions the predictions to be shown
+	 * @return the version of their fixtures
+	 */
+	private String getFixturesVersion(List<Prediction> predictions) {
+		StringBuilder version = new StringBuilder();
+		
+		for (Prediction prediction : predictions) {
+			Fixture fixture = prediction.getFixture();
+			
+			version.append(fixture.getId()).append('=').append(fixture.getResult());
+			
+			if (prediction instanceof PredictionBean && ((PredictionBean) prediction).isStarted()) {
+				version.append('*');
+			}
+			
+			version.append(',');
+		}
+		
+		return version.toString();
+	}
+	
+	/**
+	 * Work out the version of a blog post from everything about it that's shown.
+	 * 
+	 * @param blogPost the blog post to be shown
+	 * @return the version of the post
+	 */
+	private String getBlogPostVersion(BlogPost blogPost) {
+		if (blogPost == null) {
+			return "";
+		}
+		
+		return new StringBuilder().append(blogPost.getId()).append('|').append(blogPost.getPostTime())
+								  .append('|').append(blogPost.getTitle()).append('|').append(blogPost.getLeadText())
+								  .append('|').append(blogPost.getPostedText()).toString();
+	}
+	
+	/**
+	 * Get the user's predicted results, ready to fill in the slots of a shared fragment.
+	 * 
+	 * @param predictions the user's predictions
+	 * @return the escaped predicted results, keyed on slot name
+	 */
+	private Map<String, String> getPredictedResults(List<Prediction> predictions) {
+		Map<String, String> personalValues = new HashMap<>();
+		
+		for (Prediction prediction : predictions) {
+			if (prediction.getPredictedResult() != null) {
+				personalValues.put(getPredictionSlotName(prediction),
+								   HtmlUtils.htmlEscape(prediction.getPredictedResult().toString()));
+			}
+		}
+		
+		return personalValues;
+	}
+	
+	/**
+	 * Get the name of the slot holding a prediction in a shared fragment.
+	 * 
+	 * @param prediction the prediction
+	 * @return the name of the slot
+	 */
+	private String getPredictionSlotName(Prediction prediction) {
+		return "prediction-" + prediction.getFixture().getId();
+	}
+	
+	/**
+	 * Get the name of the section holding one of a prize's standings in the shared standings.
+	 * 
+	 * @param prizeNumber the index of the prize (1, 2, 3)
+	 * @param index the index of the standing
+	 * @return the name of the section
+	 */
+	private String getStandingSlotName(int prizeNumber, int index) {
+		return "standing-" + (prizeNumber - 1) + "-" + index;
 	}
 }
@@ -0,0 +1,38 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.web.controller;
+
+import org.leastweasel.predict.domain.StandingsCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Controller that tells a load balancer, or anyone else who asks, whether PredictWeasel
+ * is ready to serve players. It isn't until the {@link StandingsCache} has been warmed
+ * up, as until then the leagues would show empty standings.
+ */
+@Controller
+public class ReadinessController {
+	@Autowired
+	private StandingsCache standingsCache;
+
+	/**
+	 * Handle a GET request for the application's readiness.
+	 * 
+	 * @return an OK status if the application is ready, or service unavailable if not
+	 */
+	@RequestMapping(value="/ready", method = RequestMethod.GET, produces="text/plain")
+	public ResponseEntity<String> checkReadiness() {
+		if (standingsCache.isWarm()) {
+			return new ResponseEntity<>("READY", HttpStatus.OK);
+		}
+		
+		return new ResponseEntity<>("WARMING UP", HttpStatus.SERVICE_UNAVAILABLE);
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * The Least Weasel Organisation
+ * Copyright (C) 2004-2014 by Andrew Gillies
+ */
+package org.leastweasel.predict.web.controller;
+
+import java.util.Locale;
+
+import org.leastweasel.predict.domain.Competition;
+import org.leastweasel.predict.service.RescoringService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+/**
+ * Controller that allows an administrative user to rescore every result of a
+ * {@link Competition}, typically after the scoring rules have been fixed. The
+ * rescoring happens in the background; its progress is shown on the competitions page.
+ */
+@Controller
+public class RescoreCompetitionController {
+	@Autowired
+	private RescoringService rescoringService;
+	
+    @Autowired
+    private MessageSource messageSource;
+    
+	/**
+	 * Handle a GET request to rescore a competition.     
+	 * 
+	 * @param competition the ID of the competition to rescore
+     * @param locale the locale used in the request
+     * @param redirectAttributes any attributes we want to survive across the redirect should be added here 
+	 * @return the name of the view to go to next
+	 */
+	@RequestMapping(value="/competition/rescore", method = RequestMethod.GET)
+	public String startRescoring(@RequestParam("competition") Competition competition,
+								Locale locale,
+								RedirectAttributes redirectAttributes) {
+	
+		if (rescoringService.startRescoring(competition)) {
+	        String message = messageSource.getMessage("flash.rescoring.started", 
+	        										  	 new Object [] { competition.getName() }, 
+	        										  	 locale);
+	        
+	        FlashMessageHelper.addSuccessMessage(redirectAttributes, message);
+		} else {
+	        String message = messageSource.getMessage("flash.rescoring.busy", null, locale);
+	        
+	        FlashMessageHelper.addWarningMessage(redirectAttributes, message);
+		}
+
+		return "redirect:/competitions";
+	}
+}
@@ -4,16 +4,21 @@
  */
 package org.leastweasel.predict.web.controller;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 
+import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.leastweasel.predict.domain.Fixture;
 import org.leastweasel.predict.domain.MatchResult;
 import org.leastweasel.predict.domain.UserSubscription;
+import org.leastweasel.predict.exception.PredictionNotSavedException;
 import org.leastweasel.predict.format.MatchResultFormatter;
+import org.leastweasel.predict.repository.FixtureRepository;
 import org.leastweasel.predict.service.Clock;
 import org.leastweasel.predict.service.PredictionService;
 import org.slf4j.Logger;
@@ -25,13 +30,19 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * Controller that allows a user to save a prediction. This is called, via a jQuery POST request, 
  * when the user tabs out of the prediction input field.
+ * <p>
+ * The page gathers up the predictions the user has changed and saves them all at once, a
+ * short while after the user stops editing them, so there's also a request to save several
+ * predictions in a single transaction.
  */
 @Controller
 public class SavePredictionController {
+	private static final String SAVE_FAILED_TEXT = "Sorry, your prediction couldn't be saved, please try again";
 
 	@Autowired
 	private PredictionService predictionService;
@@ -42,6 +53,9 @@ public class SavePredictionController {
 	@Autowired
 	private Clock systemClock;
 	
+	@Autowired
+	private FixtureRepository fixtureRepository;
+	
     private static Logger logger = LoggerFactory.getLogger(SavePredictionController.class);
 
     @Autowired
@@ -91,10 +105,117 @@ public class SavePredictionController {
 			response.put("predictionText", matchResultFormatter.print(predictedResult, locale));
 			response.put("infoText", "Saved");
 			
+		} catch(PredictionNotSavedException e) {
+			response.put("errorText", SAVE_FAILED_TEXT);
 		} catch(Exception e) {
 			response.put("errorText", "Invalid prediction format: " + predictedResultText);
 		}
 		
 		return response;
 	}
+
+    /**
+     * Submit the request to save several predictions. Each fixture is checked against the
+     * same current time, and all the valid predictions are saved in a single transaction. We
+     * return the formatted version of each updated prediction so that we can display it in
+     * the form.
+     * <p>
+     * The fixture IDs and prediction texts are read straight from the request, as parallel
+     * lists, so that a prediction containing a comma isn't split in two.
+     * 
+	 * @param subscription the user and league for which we are receiving predictions
+     * @param request the request, with a "fixture" and a "predictionText" parameter for each
+     * 		  prediction, in the same order
+     * @param locale the locale used to parse and format the predictions
+     * @return a map, which will be converted to a JSON object, keyed on fixture ID. Each value
+     * 			has the updated prediction text or, if the prediction couldn't be saved, an error
+     * 			message to display 
+     */
+    @RequestMapping(value="/league/savePredictions", method = RequestMethod.POST, produces="application/json")
+	@ResponseBody
+	public Map<Long, Map<String, String>> savePredictions(UserSubscription subscription,
+														 WebRequest request,
+														 Locale locale) {
+    	
+    	Map<Long, Map<String, String>> response = new LinkedHashMap<>();
+    	String[] fixtureIds = request.getParameterValues("fixture");
+    	String[] predictedResultTexts = request.getParameterValues("predictionText");
+    	
+    	if (fixtureIds == null || predictedResultTexts == null || fixtureIds.length != predictedResultTexts.length) {
+    		logger.warn("Ignoring a request to save predictions with mismatched fixtures: {} and predictions: {}",
+    					Arrays.toString(fixtureIds), Arrays.toString(predictedResultTexts));
+    		
+    		return response;
+    	}
+    	
+    	// Fetch all the fixtures in one go.
+    	
+    	Map<Long, Fixture> fixtures = new HashMap<>();
+    	Map<Long, String> predictedResultsById = new LinkedHashMap<>();
+    	
+    	for (int i = 0; i < fixtureIds.length; i++) {
+    		try {
+    			predictedResultsById.put(Long.valueOf(fixtureIds[i]), predictedResultTexts[i]);
+    		} catch (NumberFormatException e) {
+    			logger.warn("Ignoring a prediction for an invalid fixture ID: {}", fixtureIds[i]);
+    		}
+    	}
+    	
+    	for (Fixture fixture : fixtureRepository.findAll(predictedResultsById.keySet())) {
+    		fixtures.put(fixture.getId(), fixture);
+    	}
+    	
+    	DateTime now = systemClock.getCurrentDateTime();
+    	Map<Fixture, MatchResult> predictedResults = new LinkedHashMap<>();
+    	
+    	for (Map.Entry<Long, String> entry : predictedResultsById.entrySet()) {
+    		Fixture fixture = fixtures.get(entry.getKey());
+    		Map<String, String> fixtureResponse = new HashMap<>();
+    		
+    		response.put(entry.getKey(), fixtureResponse);
+    		
+    		// Users can only predict the fixtures of the competition they're playing.
+    		
+    		if (fixture == null || !fixture.getCompetition().equals(subscription.getLeague().getCompetition())) {
+    			fixtureResponse.put("errorText", "Sorry, that match can't be found");
+    			
+    			continue;
+    		}
+    		
+    		try {
+    			MatchResult predictedResult = matchResultFormatter.parse(entry.getValue(), locale);
+    			
+    			if (!fixture.getMatchTime().isAfter(now)) {
+    				fixtureResponse.put("errorText", "Sorry, the match has already started");
+    			} else {
+    				predictedResults.put(fixture, predictedResult);
+    				
+    				fixtureResponse.put("predictionText", matchResultFormatter.print(predictedResult, locale));
+    				fixtureResponse.put("infoText", "Saved");
+    			}
+    		} catch (Exception e) {
+    			fixtureResponse.put("errorText", "Invalid prediction format: " + entry.getValue());
+    		}
+    	}
+    	
+    	if (logger.isDebugEnabled()) {
+    		logger.debug("Got {} predictions to save from user ID {}, of which {} are valid",
+    					 fixtureIds.length, subscription.getUser().getId(), predictedResults.size());
+    	}
+    	
+    	try {
+    		predictionService.createOrUpdatePredictions(subscription, predictedResults);
+    	} catch (PredictionNotSavedException e) {
+    		// None of them was saved, so they all need to be tried again.
+    		
+    		for (Fixture fixture : predictedResults.keySet()) {
+    			Map<String, String> fixtureResponse = response.get(fixture.getId());
+    			
+    			fixtureResponse.remove("infoText");
+    			fixtureResponse.put("errorText", SAVE_FAILED_TEXT);
+    		}
+    	}
+    	
+    	return response;
+    }
 }
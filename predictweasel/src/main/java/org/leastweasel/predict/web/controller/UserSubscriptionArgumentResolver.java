@@ -4,13 +4,22 @@
  */
 package org.leastweasel.predict.web.controller;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+
 import org.leastweasel.predict.domain.User;
 import org.leastweasel.predict.domain.UserSubscription;
 import org.leastweasel.predict.exception.NoUserSubscriptionException;
 import org.leastweasel.predict.service.SubscriptionService;
 import org.leastweasel.predict.web.SessionSettings;
+import org.leastweasel.predict.web.WebUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.MethodParameter;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.support.WebDataBinderFactory;
@@ -31,10 +40,18 @@ import org.springframework.web.servlet.HandlerInterceptor;
  * types can be thrown if the league code is one of the special values that aren't
  * really league codes (i.e. representing user having no subscription, or more than
  * one and not having chosen one yet).
+ * <p>
+ * A single request can ask for the subscription many times (once for each model attribute
+ * method of a controller, as well as for the handler method itself) so it's only loaded
+ * once per request, the first time it's asked for, and then stored in the request.
+ * The number of times it was found in the request (hits) and had to be loaded (misses)
+ * are counted, and published over JMX.
  * 
  * @see LeagueCodeResolvingHandlerInterceptor
  */
 @Component
+@ManagedResource(objectName = "predictWeasel:name=userSubscriptionArgumentResolver",
+				 description = "Resolves the current user subscription of controller methods")
 public class UserSubscriptionArgumentResolver implements HandlerMethodArgumentResolver {
 	@Autowired
 	private SubscriptionService subscriptionService;
@@ -42,6 +59,12 @@ public class UserSubscriptionArgumentResolver implements HandlerMethodArgumentRe
 	@Autowired
 	private SessionSettings sessionSettings;
 	
+	private final AtomicLong hits = new AtomicLong();
+	
+	private final AtomicLong misses = new AtomicLong();
+	
+	private static final Logger logger = LoggerFactory.getLogger(UserSubscriptionArgumentResolver.class);
+	
 	/**
 	 * Indicates whether this resolver supports the given parameter to a controller method.
 	 * It does if the parameter is a UserSubscription.
@@ -73,11 +96,26 @@ public class UserSubscriptionArgumentResolver implements HandlerMethodArgumentRe
 		
 		if (UserSubscription.class.isAssignableFrom(parameter.getParameterType())) {
 			String leagueCode = sessionSettings.getCurrentLeagueCode();
+			HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
 
-			UserSubscription subscription = subscriptionService.getSubscriptionFromLeagueCode(leagueCode);
+			UserSubscription subscription = WebUtil.Request.getCurrentSubscription(request);
+			
+			if (subscription != null && subscription.getLeague().getCode().equals(leagueCode)) {
+				hits.incrementAndGet();
+			} else {
+				misses.incrementAndGet();
+				
+				if (logger.isDebugEnabled()) {
+					logger.debug("Subscription to league with code: {} not yet loaded in this request", leagueCode);
+				}
+				
+				subscription = subscriptionService.getSubscriptionFromLeagueCode(leagueCode);
 
-			if (subscription == null) {
-				throw new NoUserSubscriptionException();
+				if (subscription == null) {
+					throw new NoUserSubscriptionException();
+				}
+				
+				WebUtil.Request.setCurrentSubscription(request, subscription);
 			}
 			
 			return subscription;
@@ -88,4 +126,24 @@ public class UserSubscriptionArgumentResolver implements HandlerMethodArgumentRe
 					"Unknown parameter type: " + parameter.getParameterType() + " in method: " + parameter.getMethod());
 		}
 	}
+	
+	/**
+	 * Get the number of times the subscription was already present in the request when it was asked for.
+	 * 
+	 * @return the number of subscriptions resolved without going to the database
+	 */
+	@ManagedAttribute(description = "Subscriptions resolved without going to the database")
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * Get the number of times the subscription had to be loaded from the database when it was asked for.
+	 * 
+	 * @return the number of subscriptions resolved by going to the database
+	 */
+	@ManagedAttribute(description = "Subscriptions resolved by going to the database")
+	public long getMisses() {
+		return misses.get();
+	}
 }
@@ -16,15 +16,26 @@ import org.leastweasel.predict.service.StandingsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
 /**
  * Controller that allows a user to navigate to the page showing the full standings
  * for a single {@link League}. The league in question will be the {@link User}'s 
  * 'current' league. It  will have been predetermined so is not passed in as a parameter.
+ * <p>
+ * The standings are shown a page at a time, so the page takes the same time to render
+ * however big the league is. The {@code prize} parameter picks the prize (1, 2, 3) whose
+ * tab is shown, and {@code page} (counting from 0) and {@code size} pick the page of its
+ * standings. The other prizes show their first page. Each prize has a link to the page
+ * showing the player's own position.
  */
 @Controller
 public class ViewStandingsController {
@@ -34,6 +45,12 @@ public class ViewStandingsController {
 	@Autowired
 	private LeagueService leagueService;
 	
+	@Value("${predictWeasel.standingsPageSize}")
+	private int defaultPageSize;
+	
+	@Value("${predictWeasel.maximumStandingsPageSize}")
+	private int maximumPageSize;
+	
 	private static final Logger logger = LoggerFactory.getLogger(ViewStandingsController.class);
 
 	/**
@@ -65,20 +82,91 @@ public class ViewStandingsController {
 	}
 	
 	/**
-	 * Get the standings for the current league in each of the prize categories.    
+	 * Get the prize whose standings should be shown first.
+	 * 
+	 * @param prizeNumber the index of the prize (1, 2, 3) asked for, if any
+	 * @return the index of the prize to show
+	 */
+	@ModelAttribute("selectedPrize")
+	public int getSelectedPrize(@RequestParam(value = "prize", required = false) Integer prizeNumber) {
+		if (prizeNumber == null || prizeNumber < 1 || prizeNumber > 3) {
+			return 1;
+		}
+		
+		return prizeNumber;
+	}
+	
+	/**
+	 * Get the number of standings to show on each page.
+	 * 
+	 * @param pageSize the page size asked for, if any
+	 * @return the page size, which is never more than the maximum
+	 */
+	@ModelAttribute("pageSize")
+	public int getPageSize(@RequestParam(value = "size", required = false) Integer pageSize) {
+		if (pageSize == null || pageSize < 1) {
+			return defaultPageSize;
+		}
+		
+		return Math.min(pageSize, maximumPageSize);
+	}
+	
+	/**
+	 * Add a page of the standings for the current league in each of the prize categories to
+	 * the model, along with the standings on each page. The selected prize shows the page
+	 * asked for, and the others show their first page.
 	 * 
 	 * @param subscription identifies the user and the league they're currently playing
-	 * @return a list of the player standings, each of which is itself a list
+	 * @param prizeNumber the index of the prize (1, 2, 3) whose page was asked for
+	 * @param pageNumber the number of the page asked for, counting from 0
+	 * @param pageSize the number of standings per page asked for
+	 * @param model the model to which the pages ("standingsPages") and the standings on
+	 * 		  them ("prizeStandings") are added
 	 */
-	@ModelAttribute("prizeStandings")
-	public List<List<PersonalisedPlayerStanding>> getPrizeStandings(UserSubscription subscription) {
+	@ModelAttribute
+	public void addPrizeStandings(UserSubscription subscription,
+								  @RequestParam(value = "prize", required = false) Integer prizeNumber,
+								  @RequestParam(value = "page", required = false) Integer pageNumber,
+								  @RequestParam(value = "size", required = false) Integer pageSize,
+								  Model model) {
+		
+		List<Page<PersonalisedPlayerStanding>> standingsPages = new ArrayList<>();
 		List<List<PersonalisedPlayerStanding>> prizeStandings = new ArrayList<>();
+		int selectedPrize = getSelectedPrize(prizeNumber);
+		int size = getPageSize(pageSize);
 		
-		prizeStandings.add(standingsService.getFullPrizeStandings(subscription, 1));
-		prizeStandings.add(standingsService.getFullPrizeStandings(subscription, 2));
-		prizeStandings.add(standingsService.getFullPrizeStandings(subscription, 3));
+		for (int i = 1; i < 4; i++) {
+			int page = (i == selectedPrize && pageNumber != null && pageNumber > 0) ? pageNumber : 0;
+			Page<PersonalisedPlayerStanding> standingsPage =
+					standingsService.getPrizeStandingsPage(subscription, i, new PageRequest(page, size));
+			
+			standingsPages.add(standingsPage);
+			prizeStandings.add(standingsPage.getContent());
+		}
+		
+		model.addAttribute("standingsPages", standingsPages);
+		model.addAttribute("prizeStandings", prizeStandings);
+	}
+	
+	/**
+	 * Get the number of the page that shows the user's own position in each of the prize
+	 * categories.
+	 * 
+	 * @param subscription identifies the user and the league they're currently playing
+	 * @param pageSize the number of standings per page asked for
+	 * @return the page numbers, counting from 0, or -1 if the user isn't in a prize's standings
+	 */
+	@ModelAttribute("playerPageNumbers")
+	public List<Integer> getPlayerPageNumbers(UserSubscription subscription,
+											  @RequestParam(value = "size", required = false) Integer pageSize) {
+		List<Integer> playerPageNumbers = new ArrayList<>();
+		int size = getPageSize(pageSize);
+		
+		for (int i = 1; i < 4; i++) {
+			playerPageNumbers.add(standingsService.getPlayerPageNumber(subscription, i, size));
+		}
 		
-		return prizeStandings;
+		return playerPageNumbers;
 	}
 	
 	/**
@@ -41,6 +41,15 @@ public class FixturePredictionBean extends Prediction implements Comparable<Fixt
 		}
 	}
 
+	/**
+	 * Add the number of points scored for a given prize.
+	 * 
+	 * @param pointsScored the number of points scored
+	 */
+	public void addPointsScored(int pointsScored) {
+		pointsPerPrize.add(pointsScored);
+	}
+
 	/**
 	 * Get the points scored by this prediction for each prize category.
 	 * 
@@ -1,3 +1,107 @@
+/**
+ * The predictions that have been changed but not yet saved, keyed on fixture ID. Each has
+ * the input field and the prediction text as it was when the user tabbed out of the field.
+ */
+var pendingPredictions = {};
+
+/**
+ * The timer that saves the pending predictions once the user has stopped editing them.
+ */
+var savePredictionsTimer = null;
+
+/**
+ * How long to wait, in milliseconds, after the last change before saving the predictions.
+ */
+var SAVE_PREDICTIONS_DELAY = 1500;
+
+/**
+ * Save all the pending predictions in a single request, and show the outcome next to each
+ * input field.
+ *
+ * @param synchronous should we wait for the request to complete (e.g. because the user is
+ * 		  leaving the page)
+ */
+function savePendingPredictions(synchronous) {
+	var fixtureIds = [];
+	var predictionTexts = [];
+	var predictions = pendingPredictions;
+
+	clearTimeout(savePredictionsTimer);
+	pendingPredictions = {};
+
+	$.each(predictions, function(fixtureId, prediction) {
+		fixtureIds.push(fixtureId);
+		predictionTexts.push(prediction.text);
+	});
+
+	if (fixtureIds.length == 0) {
+		return;
+	}
+
+	$.ajax({
+		url: '/league/savePredictions',
+		type: 'POST',
+		dataType: 'json',
+		async: !synchronous,
+		traditional: true,
+		data: {fixture: fixtureIds,
+			   predictionText: predictionTexts,
+			   _csrf: $('#_csrf').val()}
+	}).done(function(data) {
+		var focusedErrorField = false;
+
+		$.each(predictions, function(fixtureId, prediction) {
+			var result = data[fixtureId];
+			var inputField = prediction.field;
+			var messageSpan = inputField.parent().next().next().children();
+			var originalPredictionText = inputField.next().val();
+
+			if (!result) {
+				return;
+			}
+
+			// If there was a problem with the prediction there will be an "errorText" value
+			// in the response.
+			var errorText = result['errorText'];
+
+			if (errorText) {
+				// As well as displaying the error message we reset the prediction text and
+				// put the focus back in the first field that caused an error.
+				messageSpan.removeClass('text-info').addClass('text-danger');
+				messageSpan.html(errorText);
+				inputField.val(originalPredictionText);
+
+				if (!focusedErrorField) {
+					inputField.focus();
+					focusedErrorField = true;
+				}
+			} else {
+				// The response contains the updated prediction, which will have been formatted properly.
+				var updatedPredictionText = result['predictionText'];
+				var infoText = result['infoText'];
+
+				// Display an information message, if there is one.
+				if (infoText) {
+					messageSpan.removeClass('text-danger').addClass('text-info');
+					messageSpan.html(infoText);
+					messageSpan.fadeOut(1000);
+				}
+
+				// Update the "original value" field so that we don't keep triggering events and,
+				// unless the user has changed it again since, the prediction input field so that
+				// we get proper formatting of the value.
+				if (inputField.val() == prediction.text) {
+					inputField.val(updatedPredictionText);
+				}
+
+				inputField.next().val(updatedPredictionText);
+			}
+		});
+	}).fail(function(qXHR, textStatus, errorThrown) {
+		alert("Fail! An error occurred trying to save the predictions");
+	});
+}
+
 /**
  * This event handler is called to signify that the page is ready as the DOM
  * has been fully initialised.
@@ -6,64 +110,42 @@ $(document).ready(function() {
 	/**
 	 * Register a blur event handler (triggered when the field loses input focus) for each
 	 * of the edit fields where the user will enter their prediction for a given fixture.
-	 * 
+	 *
 	 * Each input field will be given an ID in the form 'fixture_<fixtureId>' (e.g. 'fixture_21').
-	 * When the user tabs out of the field a request will be made to save the prediction.
+	 * When the user tabs out of the field the prediction is added to those waiting to be saved,
+	 * and they're all saved together once the user has stopped making changes for a moment.
 	 */
 	$(":input[name='prediction']").blur(function(event) {
-		
+
 		var predictionFieldId = $(this).attr("id").valueOf();
 		var fixtureId = predictionFieldId.substr(predictionFieldId.indexOf("_") + 1,predictionFieldId.length);
 		var predictionText = $(this).val();
 		var originalPredictionText = $(this).next().val();
-		var CSRFToken = $('#_csrf').val();
 		var inputField = $(this);
-		var messageSpan = inputField.parent().next().next().children(); 
+		var messageSpan = inputField.parent().next().next().children();
 
 		// Clear any error messages.
 		messageSpan.html('');
 		messageSpan.show();
 
-		// Only submit the request if the prediction has changed.
-		
+		// Only save the prediction if it has changed. If it's been changed back, forget about it.
+
 		if (predictionText != originalPredictionText) {
-			$.post('/league/savePrediction',
-	                {fixture: fixtureId,
-	                 predictionText: predictionText,
-	                 _csrf: CSRFToken},
-	                 function(data) {
-	                	 	// If there was a problem with the format of the prediction there
-	                	 	// will be an "errorText" value in the response.
-	                	 	var errorText = data['errorText'];
-	                	 	
-	                	 	if (errorText) {
-	                	 		// As well as displaying the error message we reset the prediction
-	                	 		// text and put back the focus in the field that caused the error.
-	                	 		messageSpan.removeClass('text-info').addClass('text-danger');
-	                	 		messageSpan.html(errorText);
-	                	 		inputField.val(originalPredictionText);
-	                	 		inputField.focus();
-	                	 	} else {
-		                	 	// The response contains the updated prediction, which will have been formatted properly.
-		                	 	var updatedPredictionText = data['predictionText'];
-		                	 	var infoText = data['infoText'];
-
-		                	 	// Display an information message, if there is one.
-		                	 	if (infoText) {
-		                	 		messageSpan.removeClass('text-danger').addClass('text-info');
-		                	 		messageSpan.html(infoText);
-		                	 		messageSpan.fadeOut(1000);
-		                	 	}
-
-		         			// Update the "original value" field so that we don't keep triggering events, and
-		                	 	// the prediction input field so that we get proper formatting of the value.
-		         			inputField.val(updatedPredictionText); 
-		         			inputField.next().val(updatedPredictionText);
-	                	 	}
-
-	                 }).fail(function(qXHR, textStatus, errorThrown) {
-	                	 				alert("Fail! An error occurred trying to save the prediction");
-	                 			});
+			pendingPredictions[fixtureId] = {field: inputField, text: predictionText};
+		} else {
+			delete pendingPredictions[fixtureId];
 		}
+
+		clearTimeout(savePredictionsTimer);
+		savePredictionsTimer = setTimeout(function() {
+			savePendingPredictions(false);
+		}, SAVE_PREDICTIONS_DELAY);
+	});
+
+	/**
+	 * Don't lose any predictions that haven't been saved yet when the user leaves the page.
+	 */
+	$(window).on('beforeunload', function() {
+		savePendingPredictions(true);
 	});
-})
\ No newline at end of file
+})
@@ -1,3 +1,4 @@
+drop table if exists outbound_email;
 drop table if exists blog_post;
 drop table if exists prize_points;
 drop table if exists user_subscription;
@@ -97,6 +98,7 @@ create table fixture (
   match_time datetime not null,
   knockout_fixture tinyint(1) not null,
   primary key (id),
+  key fixture_competition_match_time (competition_id, match_time),
   constraint FIXTURE_COMPETITION_ID foreign key (competition_id) references competition (id),
   constraint FIXTURE_HOME_TEAM_ID foreign key (home_team_id) references team (id),
   constraint FIXTURE_AWAY_TEAM_ID foreign key (away_team_id) references team (id)
@@ -141,6 +143,7 @@ create table prediction (
   home_score int(11) not null,
   away_score int(11) not null,
   primary key (id),
+  unique key prediction_user_fixture (user_id, fixture_id),
   constraint PREDICTION_FIXTURE_ID foreign key (fixture_id) references fixture (id),
   constraint PREDICTION_USER_ID foreign key (user_id) references user (id)
 ) engine=InnoDB;
@@ -152,6 +155,7 @@ create table prize_points (
   prize_code varchar(10) not null,
   points_scored int(11) not null,
   primary key (id),
+  unique key prize_points_subscription_fixture_prize (subscription_id, fixture_id, prize_code),
   constraint PRIZE_POINTS_FIXTURE_ID foreign key (fixture_id) references fixture (id),
   constraint PRIZE_POINTS_SUBSCRIPTON_ID foreign key (subscription_id) references user_subscription (id)
 ) engine=InnoDB;
@@ -166,4 +170,18 @@ create table blog_post (
   draft_text text null,
   primary key (id),
   constraint BLOG_POST_LEAGUE_ID foreign key (league_id) references league (id)
-) engine=InnoDB;
\ No newline at end of file
+) engine=InnoDB;
+
+create table outbound_email (
+  id bigint(20) not null auto_increment,
+  recipient varchar(255) not null,
+  subject varchar(255) not null,
+  message_text text not null,
+  created_time datetime not null,
+  attempts int(11) not null default 0,
+  next_attempt_time datetime not null,
+  sent_time datetime null,
+  last_error varchar(255) null,
+  primary key (id),
+  key outbound_email_unsent (sent_time, next_attempt_time)
+) engine=InnoDB;